@@ -22,8 +22,8 @@
  */
 package javaai.aann;
 
+import javaai.util.Dataset;
 import javaai.util.Helper;
-import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -62,45 +62,31 @@ public class BaseML {
             flowers.clear();
 
             // Load data in column-oriented format preferred for normalization, missing values, etc.
-            Helper.loadCsv(path, Ontology.parsers);
+            Dataset dataset = Helper.loadDataset(path, Ontology.parsers);
 
             // Get number of rows -- if there aren't any then data hasn't been loaded successfully
-            int rowCount = Helper.getRowCount();
+            int rowCount = dataset.getRowCount();
+
+            // Look up the columns once rather than hashing titles on every row
+            int species = dataset.getColumn("Species");
+            int sepalLength = dataset.getColumn("Sepal.Length");
+            int sepalWidth = dataset.getColumn("Sepal.Width");
+            int petalLength = dataset.getColumn("Petal.Length");
+            int petalWidth = dataset.getColumn("Petal.Width");
 
             // Go through each row of each column and make a flower
             for(int row=0; row < rowCount; row++) {
-                HashMap map = Helper.asMap(row);
-
-                flowers.add(asFlower(map));
+                flowers.add((Species) dataset.getNominal(row, species));
 
-                measures.add(asMeasure(map));
+                measures.add(new Measure(
+                        dataset.getDouble(row, sepalLength),
+                        dataset.getDouble(row, sepalWidth),
+                        dataset.getDouble(row, petalLength),
+                        dataset.getDouble(row, petalWidth)));
             }
         }
         catch(Exception e) {
             e.printStackTrace();
         }
     }
-
-    /**
-     * Gets the species in the map.
-     * @param map Row in iris data set
-     * @return Species
-     */
-    private static Species asFlower(HashMap map) {
-        return (Species) map.get("Species");
-    }
-
-    /**
-     * Gets the measurement in the map.
-     * @param map Row in iris data set
-     * @return Measurement
-     */
-    private static Measure asMeasure(HashMap map) {
-        Double sepalLength = (Double) map.get("Sepal.Length");
-        Double sepalWidth = (Double) map.get("Sepal.Width");
-        Double petalLength = (Double) map.get("Petal.Length");
-        Double petalWidth = (Double) map.get("Petal.Width");
-
-        return new Measure(sepalLength,sepalWidth,petalLength,petalWidth);
-    }
 }
@@ -83,7 +83,7 @@ public class Measure {
      * @param petalLength Petal length
      * @param petalWidth Petal width
      */
-    public Measure(Double sepalLength, Double sepalWidth, Double petalLength, Double petalWidth) {
+    public Measure(double sepalLength, double sepalWidth, double petalLength, double petalWidth) {
         this.values[SEP_LENGTH] = sepalLength;
         this.values[SEP_WIDTH] = sepalWidth;
         this.values[PET_LENGTH] = petalLength;
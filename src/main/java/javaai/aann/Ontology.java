@@ -25,6 +25,7 @@ package javaai.aann;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.function.Function;
+import javaai.util.Parsers;
 import static javaai.util.Option.None;
 
 /**
@@ -33,15 +34,7 @@ import static javaai.util.Option.None;
  */
 public class Ontology {
     /** Parses a numeric string */
-    static Function<String, Object> parseNumeric = (String s) ->
-    {
-        try {
-            return Double.parseDouble(s);
-        }
-        catch(Exception e) {
-            return None;
-        }
-    };
+    static Function<String, Object> parseNumeric = Parsers.parseNumeric;
 
     /** Parses a nominal as a flower species */
     static Function<String, Object> parseNominal = (String s) -> {
@@ -50,7 +43,7 @@ public class Ontology {
     };
 
     /** Parses a "don't care" column */
-    static Function<String, Object> parseNone = (String s) -> None;
+    static Function<String, Object> parseNone = Parsers.parseNone;
 
     /** Parser table has columns of these ontologies from iris.csv. */
     public static ArrayList<Function<String, Object>> parsers =
@@ -0,0 +1,84 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.input;
+
+import javaai.ann.output.Ontology;
+import javaai.util.BatchIterator;
+import java.util.Random;
+
+/**
+ * This class streams the iris data, or any CSV file with the same columns, in shuffled mini-batches
+ * straight from disk, so the same loop works for files larger than the heap.
+ * @author Ron.Coleman
+ */
+public class IrisBatches {
+    /** Rows per batch */
+    public final static int BATCH_SIZE = 32;
+
+    /** Epochs to stream */
+    public final static int NUM_EPOCHS = 2;
+
+    /**
+     * Launches the program.
+     * @param args Command line arguments: optional CSV file path
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        String path = args.length > 0 ? args[0] : "data/iris.csv";
+
+        try (BatchIterator batches = new BatchIterator(path, Ontology.parsers, BATCH_SIZE, new Random(0))) {
+            int width = batches.getWidth();
+
+            double[] batch = new double[BATCH_SIZE * width];
+
+            for (int epoch = 1; epoch <= NUM_EPOCHS; epoch++) {
+                int count = 0;
+                int rows = 0;
+
+                int n;
+                while ((n = batches.next(batch)) > 0) {
+                    // Show the first row of the epoch
+                    if (count == 0) {
+                        System.out.print("epoch " + epoch + " first row:");
+
+                        for (int k = 0; k < width; k++) {
+                            if (batches.isNumeric(k))
+                                System.out.printf(" %.1f", batch[k]);
+                            else
+                                System.out.print(" " + batches.getNominalValue(k, (int) batch[k]));
+                        }
+
+                        System.out.println();
+                    }
+
+                    count++;
+                    rows += n;
+                }
+
+                System.out.println("epoch " + epoch + ": " + count + " batches, " + rows + " rows");
+
+                batches.reset();
+            }
+        }
+    }
+}
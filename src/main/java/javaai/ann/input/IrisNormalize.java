@@ -0,0 +1,74 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.input;
+
+import javaai.ann.output.Ontology;
+import javaai.util.CsvLoader;
+import javaai.util.Dataset;
+import javaai.util.Normalizer;
+import java.util.Random;
+
+/**
+ * This class normalizes the iris measures to [-1, 1] as they are loaded, saves the training
+ * statistics and uses them again to normalize a new measure without reading the data again.
+ * @author Ron.Coleman
+ */
+public class IrisNormalize {
+    /**
+     * Launches the program.
+     * @param args Command line arguments.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        Normalizer normalizer = new Normalizer(1, -1);
+
+        CsvLoader loader = new CsvLoader(Ontology.parsers);
+
+        loader.setRandom(new Random(0));
+
+        loader.setNormalizer(normalizer);
+
+        Dataset dataset = loader.load("data/iris.csv");
+
+        for (int col = 0; col < dataset.getColumnCount(); col++) {
+            if (!dataset.isNumeric(col))
+                continue;
+
+            System.out.printf("%-12s %s\n", dataset.getTitle(col), dataset.getStats(col));
+        }
+
+        System.out.printf("first row normalized: %.4f %.4f %.4f %.4f\n", dataset.getDouble(0, 0),
+                dataset.getDouble(0, 1), dataset.getDouble(0, 2), dataset.getDouble(0, 3));
+
+        // Save the training statistics then normalize an inference input with them
+        String path = System.getProperty("java.io.tmpdir") + "/iris-normalizer.csv";
+
+        normalizer.save(path);
+
+        Normalizer saved = Normalizer.load(path);
+
+        double length = 6.0;
+
+        System.out.printf("Sepal.Length %.1f normalizes to %.4f\n", length, saved.normalize("Sepal.Length", length));
+    }
+}
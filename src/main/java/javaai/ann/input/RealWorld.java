@@ -22,19 +22,17 @@
  */
 package javaai.ann.input;
 
-import javaai.util.Helper;
+import javaai.util.Dataset;
 import java.util.HashMap;
-import java.util.List;
 import static javaai.ann.output.Ontology.parsers;
-import static javaai.util.Helper.loadCsv;
-import static javaai.util.Helper.headers;
+import static javaai.util.Helper.loadDataset;
 
 /**
  * This class loads "real-world" iris data to be normalized.
  */
 public class RealWorld {
     /** Contains real-world data */
-    protected static HashMap<String, List<Double>> reals = new HashMap<>();
+    protected static HashMap<String, double[]> reals = new HashMap<>();
 
     /**
      * Launches the program.
@@ -49,18 +47,19 @@ public class RealWorld {
      */
     protected static void load() {
         try {
-            loadCsv("data/iris.csv", parsers);
+            Dataset dataset = loadDataset("data/iris.csv", parsers);
 
-            for(String title: headers) {
-                List list = Helper.data.get(title);
-
-                // Make sure the list contains doubles
+            for(int col = 0; col < dataset.getColumnCount(); col++) {
+                // Make sure the column contains doubles
                 // Note: nominal species data needs 1-of-n or equilateral encoding done elsewhere.
-                if(list == null || list.isEmpty() || !(list.get(0) instanceof Double))
+                if(!dataset.isNumeric(col))
                     continue;
 
-                // Add copy of reference, not copy of data.
-                reals.put(title,(List<Double>)list);
+                double[] column = new double[dataset.getRowCount()];
+
+                dataset.getColumn(col, column);
+
+                reals.put(dataset.getTitle(col), column);
             }
         }
         catch(Exception e) {
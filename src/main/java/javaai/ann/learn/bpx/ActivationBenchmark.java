@@ -0,0 +1,200 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import javaai.util.Activation;
+import javaai.util.Activation.Mode;
+import javaai.util.LeakyRelu;
+import javaai.util.Relu;
+import javaai.util.Sigmoid;
+import javaai.util.Softmax;
+import javaai.util.Tanh;
+import javaai.util.VectorActivation;
+
+import java.util.Random;
+
+/**
+ * This class measures the speed and error of each activation in each mode, then the epoch time of a
+ * network with the sigmoid in each mode.
+ * <p>Each measurement warms up before it is timed and consumes its results so the JIT can't drop the
+ * work; the times are the best of several rounds.</p>
+ * @author Ron.Coleman
+ */
+public class ActivationBenchmark {
+    public final static int SIZE = 4096;
+    public final static int WARMUPS = 5;
+    public final static int ROUNDS = 10;
+    public final static int REPEATS = 200;
+    public final static int WIDTH = 16;
+
+    // Keeps the results live
+    static double sink = 0;
+
+    /**
+     * Runs the benchmark.
+     * @param args Command line arguments: optional tolerance
+     */
+    public static void main(String[] args) {
+        double tolerance = args.length > 0 ? Double.parseDouble(args[0]) : Activation.TOLERANCE;
+
+        double[] xs = new double[SIZE];
+
+        Random ran = new Random(0);
+
+        for (int k = 0; k < xs.length; k++)
+            xs[k] = 16 * ran.nextDouble() - 8;
+
+        System.out.printf("tolerance=%g\n", tolerance);
+        System.out.printf("%-10s %-9s %10s %10s %8s\n", "function", "mode", "ns/value", "max error", "speedup");
+
+        for (Mode mode : Mode.values())
+            report(new Sigmoid(mode, tolerance), new Sigmoid(), xs);
+
+        for (Mode mode : Mode.values())
+            report(new Tanh(mode, tolerance), new Tanh(), xs);
+
+        report(new Relu(), new Relu(), xs);
+
+        report(new LeakyRelu(), new LeakyRelu(), xs);
+
+        for (Mode mode : Mode.values())
+            report(new Softmax(mode, tolerance), new Softmax(), xs);
+
+        // Small network where the sigmoid is a big part of the work
+        double[][][] data = ParallelTrainer.getSyntheticData(4096, 16, 4, new Random(0));
+
+        System.out.printf("\n%-9s %10s %12s\n", "mode", "ms/epoch", "mse");
+
+        for (Mode mode : Mode.values()) {
+            BackpropNetwork bp = new BackpropNetwork(new int[] {16, 16, 4}, true, new Random(1));
+
+            bp.setTrainingSet(data[0], data[1]);
+
+            bp.setActivation(new Sigmoid(mode, tolerance));
+
+            double error = 0;
+
+            double best = Double.MAX_VALUE;
+
+            for (int round = 0; round < WARMUPS + ROUNDS; round++) {
+                long start = System.nanoTime();
+
+                error = bp.train();
+
+                if (round >= WARMUPS)
+                    best = Math.min(best, (System.nanoTime() - start) / 1e6);
+            }
+
+            System.out.printf("%-9s %10.3f %12.8f\n", mode, best, error);
+        }
+
+        if (sink == 42)
+            System.out.println();
+    }
+
+    // Time of the exact mode of the function being reported
+    static double exactNs = 0;
+
+    /**
+     * Times an activation and measures its error against the exact one.
+     * @param activation Activation
+     * @param exact      Exact activation of the same function
+     * @param xs         Values
+     */
+    static void report(Activation activation, Activation exact, double[] xs) {
+        double ns = time(activation, xs);
+
+        if (activation.getMode() == Mode.EXACT)
+            exactNs = ns;
+
+        double error = activation.getError(exact, -20, 20, 200001);
+
+        System.out.printf("%-10s %-9s %10.3f %10.2e %8.2f\n", activation.getClass().getSimpleName(),
+                activation.getMode(), ns, error, exactNs / ns);
+    }
+
+    /**
+     * Times an activation.
+     * @param activation Activation
+     * @param xs         Values
+     * @return Best time per value in ns
+     */
+    static double time(Activation activation, double[] xs) {
+        double[] ys = new double[xs.length];
+
+        double best = Double.MAX_VALUE;
+
+        for (int round = 0; round < WARMUPS + ROUNDS; round++) {
+            long start = System.nanoTime();
+
+            for (int repeat = 0; repeat < REPEATS; repeat++) {
+                System.arraycopy(xs, 0, ys, 0, xs.length);
+
+                for (int k = 0; k < ys.length; k++)
+                    ys[k] = activation.apply(ys[k]);
+
+                sink += ys[repeat & (ys.length - 1)];
+            }
+
+            if (round >= WARMUPS)
+                best = Math.min(best, (System.nanoTime() - start) / (double) REPEATS / xs.length);
+        }
+
+        return best;
+    }
+
+    /**
+     * Times a vector activation over vectors of WIDTH values, like an output layer, and measures its
+     * error against the exact one.
+     * @param activation Activation
+     * @param exact      Exact activation of the same function
+     * @param xs         Values
+     */
+    static void report(VectorActivation activation, VectorActivation exact, double[] xs) {
+        double[] ys = new double[xs.length];
+
+        double best = Double.MAX_VALUE;
+
+        for (int round = 0; round < WARMUPS + ROUNDS; round++) {
+            long start = System.nanoTime();
+
+            for (int repeat = 0; repeat < REPEATS; repeat++) {
+                for (int k = 0; k < ys.length; k += WIDTH)
+                    activation.apply(xs, k, ys, k, WIDTH);
+
+                sink += ys[repeat & (ys.length - 1)];
+            }
+
+            if (round >= WARMUPS)
+                best = Math.min(best, (System.nanoTime() - start) / (double) REPEATS / xs.length);
+        }
+
+        if (activation.getMode() == Mode.EXACT)
+            exactNs = best;
+
+        double error = activation.getError(exact, xs, WIDTH);
+
+        System.out.printf("%-10s %-9s %10.3f %10.2e %8.2f\n", activation.getClass().getSimpleName(),
+                activation.getMode(), best, error, exactNs / best);
+    }
+}
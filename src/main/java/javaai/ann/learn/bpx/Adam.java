@@ -0,0 +1,170 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+/**
+ * This class implements Adam: each weight moves by a moving average of its gradient divided by the
+ * root of a moving average of its squared gradient, both corrected for starting at zero.
+ * @see "https://arxiv.org/abs/1412.6980"
+ * @author Ron.Coleman
+ */
+public class Adam implements Optimizer {
+    // Learning rate
+    protected double rate;
+
+    // Decay of the moving averages of the gradient and squared gradient
+    protected final double beta1;
+    protected final double beta2;
+
+    // Added to the root to avoid dividing by zero
+    protected final double epsilon;
+
+    // Moving averages of the gradient and squared gradient, one per weight
+    protected double[] ms = new double[0];
+    protected double[] vs = new double[0];
+
+    // Number of steps taken
+    protected int t = 0;
+
+    /**
+     * Constructor
+     * @param rate    Learning rate, e.g., 0.001
+     * @param beta1   Decay of the moving average of the gradient, e.g., 0.9
+     * @param beta2   Decay of the moving average of the squared gradient, e.g., 0.999
+     * @param epsilon Added to the root, e.g., 1e-8
+     */
+    public Adam(double rate, double beta1, double beta2, double epsilon) {
+        this.rate = rate;
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Constructor with the usual decays and epsilon.
+     * @param rate Learning rate
+     */
+    public Adam(double rate) {
+        this(rate, 0.9, 0.999, 1e-8);
+    }
+
+    /**
+     * Clears the moving averages and the step count and sizes the averages for a number of weights.
+     * @param count Number of weights
+     */
+    @Override
+    public void reset(int count) {
+        ms = new double[count];
+        vs = new double[count];
+
+        t = 0;
+    }
+
+    /**
+     * Counts the step, updates each weight's moving averages and moves the weight by the corrected
+     * ratio, then clears the gradient.
+     * @param ws    Weights
+     * @param gs    Gradient summed over the batch
+     * @param scale Factor of the gradient
+     */
+    @Override
+    public void step(double[] ws, double[] gs, double scale) {
+        t++;
+
+        // Fold the bias corrections into the rate and epsilon once per step
+        double c2 = Math.sqrt(1 - Math.pow(beta2, t));
+
+        double r = rate * c2 / (1 - Math.pow(beta1, t));
+
+        double e = epsilon * c2;
+
+        for (int index = 0; index < ws.length; index++) {
+            double g = scale * gs[index];
+
+            double m = beta1 * ms[index] + (1 - beta1) * g;
+            double v = beta2 * vs[index] + (1 - beta2) * g * g;
+
+            ws[index] += r * m / (Math.sqrt(v) + e);
+
+            ms[index] = m;
+            vs[index] = v;
+
+            gs[index] = 0;
+        }
+    }
+
+    /**
+     * Gets the learning rate.
+     * @return Learning rate
+     */
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the learning rate.
+     * @param rate Learning rate
+     */
+    @Override
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Gets the number of values in the state: the two moving averages and the step count.
+     * @return Twice the number of weights plus one
+     */
+    @Override
+    public int getStateSize() {
+        return ms.length + vs.length + 1;
+    }
+
+    /**
+     * Copies the state out: the moving averages of the gradient, then of the squared gradient, then the
+     * step count.
+     * @param state  Destination
+     * @param offset Offset in the destination
+     */
+    @Override
+    public void getState(double[] state, int offset) {
+        System.arraycopy(ms, 0, state, offset, ms.length);
+        System.arraycopy(vs, 0, state, offset + ms.length, vs.length);
+
+        state[offset + ms.length + vs.length] = t;
+    }
+
+    /**
+     * Copies the state in, laid out as getState: the moving averages of the gradient, then of the
+     * squared gradient, then the step count.
+     * @param state  Source
+     * @param offset Offset in the source
+     */
+    @Override
+    public void setState(double[] state, int offset) {
+        System.arraycopy(state, offset, ms, 0, ms.length);
+        System.arraycopy(state, offset + ms.length, vs, 0, vs.length);
+
+        t = (int) state[offset + ms.length + vs.length];
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class measures the bytes allocated by training epochs and compute calls once warmed up,
+ * which should be zero. It reads the allocation counter the JVM keeps per thread, which is
+ * what JMH's "-prof gc" reports.
+ * @author Ron.Coleman
+ */
+public class AllocationProbe {
+    /** Epochs to run before measuring so the JIT has compiled the passes */
+    public final static int WARMUP = 20000;
+
+    /** Epochs to measure */
+    public final static int EPOCHS = 10000;
+
+    public static void main(String[] args) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("allocation counters not supported by this JVM");
+            return;
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+
+        Random ran = new Random(0);
+
+        BackpropNetwork[] networks = {
+                new BackpropNetwork(),
+                new BackpropBiasNetwork(),
+                new BackpropMomentumNetwork(),
+                new BackpropNetwork(new int[] {64, 128, 128, 10}, true, ran)
+        };
+
+        for (BackpropNetwork bp : networks) {
+            int inputCount = bp.sizes[0];
+            int outputCount = bp.sizes[bp.sizes.length - 1];
+
+            double[][] inputs = new double[8][inputCount];
+            double[][] ideals = new double[8][outputCount];
+
+            for (int k = 0; k < inputs.length; k++) {
+                for (int i = 0; i < inputCount; i++)
+                    inputs[k][i] = ran.nextDouble();
+
+                ideals[k][k % outputCount] = 1;
+            }
+
+            bp.setTrainingSet(inputs, ideals);
+
+            int epochs = inputCount > 2 ? EPOCHS / 100 : EPOCHS;
+
+            for (int epoch = 0; epoch < (inputCount > 2 ? WARMUP / 100 : WARMUP); epoch++) {
+                bp.train();
+                bp.compute(inputs[0]);
+            }
+
+            long thread = Thread.currentThread().getId();
+
+            long before = threads.getThreadAllocatedBytes(thread);
+
+            double sink = 0;
+
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                sink += bp.train();
+                sink += bp.compute(inputs[epoch % inputs.length]);
+            }
+
+            long after = threads.getThreadAllocatedBytes(thread);
+
+            System.out.printf("%-24s %-16s %10.2f bytes/epoch (%s)\n", bp.getClass().getSimpleName(),
+                    Arrays.toString(bp.sizes), (after - before) / (double) epochs, sink > 0 ? "ok" : "?");
+        }
+    }
+}
@@ -22,14 +22,16 @@
  */
 package javaai.ann.learn.bpx;
 
+import java.util.Random;
+
 /**
  * This class implements a basic ANN as an example of backpropagation with bias.
  * @see "https://www.nnwj.de/backpropagation.html"
  * @author Ron.Coleman
  */
 public class BackpropBiasNetwork extends BackpropNetwork {
-    // Weight matrix
-    protected double[][][] ws = {
+    // Initial weight matrix
+    protected final static double[][][] WS = {
             // layer 0 (input)
 
             // layer 1 (hidden)
@@ -52,105 +54,18 @@ public class BackpropBiasNetwork extends BackpropNetwork {
     }
 
     /**
-     * Runs one epoch of the training function.
-     * @return Training error as mean square error.
+     * Constructor for the 2-2-1 network with bias.
      */
-    @Override
-    public double train() {
-        double errorSum = 0;
-
-        for (int inputno = 0; inputno < inputs.length; inputno++) {
-            top = -1;
-            double[] _inputs = inputs[inputno];
-            for (int layer = 0; layer < ws.length; layer++) {
-
-                double[] outputs = new double[ws[layer].length];
-
-                for (int neuron = 0; neuron < ws[layer].length; neuron++) {
-                    double sum = 0;
-
-                    for (int i = 0; i < ws[layer][neuron].length; i++) {
-                        double weight = ws[layer][neuron][i];
-
-                        double input = 0;
-
-                        // The last input is the bias or "pseudo input" 1.0
-                        if(i < ws[layer][neuron].length-1)
-                            input = _inputs[i];
-                        else
-                            input = 1.0;
-
-                        // Get the strength of this output
-                        double strength = weight * input;
-
-                        // Add to total strength
-                        sum += strength;
-                    }
-
-                    // Get the neuron's activation as its output
-                    double activation = sigmoid(sum);
-
-                    // Update the neuron's output
-                    outputs[neuron] = activation;
-                }
-
-                // Outputs of neuron are inputs to next layer
-                _inputs = outputs;
-
-                // Unless layer is last layer, save layer's outputs which we need for backpropagation
-                if (layer != ws.length - 1) {
-                    push(outputs);
-                    continue;
-                }
-
-                // This is the output of the three layers 0, 1, 2 ANN.
-                double output2 = outputs[0];
-
-                // Compute the error
-                double error = ideals[inputno] - output2;
-
-                double[] outputs1 = pop();
-
-                // Backpropagate error through the hidden layer
-                for (int i = layer; i > 0; i--) {
-                    for (int neuron = 0; neuron < ws[layer].length; neuron++) {
-                        for (int j = 0; j < outputs1.length; j++) {
-                            double output1 = outputs1[j];
-
-                            double dw = LEARNING_RATE * error * output1 * output2 * (1.0 - output2);
-
-                            double curw = ws[layer][neuron][j];
-
-                            double neww = curw + dw;
-
-                            ws[layer][neuron][j] = neww;
-                        }
-                    }
-
-                }
-
-                // Backpropagate the error to the input layer
-                for (int j = 0; j < outputs1.length; j++) {
-                    for (int neuron = 0; neuron < ws[0].length; neuron++) {
-                        double output0 = inputs[inputno][j];
-
-                        double output1 = outputs1[neuron];
-
-                        double dw = LEARNING_RATE * error * output0 * output1 * (1.0 - output1);
-
-                        double curw = ws[0][neuron][j];
-
-                        double neww = curw + dw;
-
-                        ws[0][neuron][j] = neww;
-                    }
-                }
-                errorSum += error * error;
-            }
-        }
-
-        double mse = errorSum / ideals.length;
+    public BackpropBiasNetwork() {
+        super(WS, true);
+    }
 
-        return mse;
+    /**
+     * Constructor for a network with bias and random weights.
+     * @param sizes Number of inputs followed by the number of neurons in each layer
+     * @param ran   Random number generator
+     */
+    public BackpropBiasNetwork(int[] sizes, Random ran) {
+        super(sizes, true, ran);
     }
 }
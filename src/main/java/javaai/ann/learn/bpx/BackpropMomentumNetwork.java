@@ -22,6 +22,8 @@
  */
 package javaai.ann.learn.bpx;
 
+import java.util.Random;
+
 /**
  * This class implements a basic ANN as an example of backpropagation with bias and momentum.
  * @see "https://www.nnwj.de/backpropagation.html"
@@ -31,8 +33,11 @@ public class BackpropMomentumNetwork extends BackpropBiasNetwork {
     // See https://jamesmccaffrey.wordpress.com/2017/06/06/neural-network-momentum/
     public final static double MOMENTUM = 0.30;
 
-    // Prior weight change container
-    double[] dws;
+    // Prior weight change container, one per weight
+    double[] dws = new double[ws.length];
+
+    // Fraction of the prior weight change
+    protected double momentum = MOMENTUM;
 
     public static void main(String[] args) {
         BackpropNetwork bp = new BackpropMomentumNetwork();
@@ -41,121 +46,71 @@ public class BackpropMomentumNetwork extends BackpropBiasNetwork {
     }
 
     /**
-     * Runs one epoch of training.
-     * @return Training error as mean square error.
+     * Constructor for the 2-2-1 network with bias and momentum.
      */
-    @Override
-    public double train() {
-        double errorSum = 0;
-
-        for (int inputno = 0; inputno < inputs.length; inputno++) {
-            top = -1;
-            double[] _inputs = inputs[inputno];
-            for (int layer = 0; layer < ws.length; layer++) {
-
-                double[] outputs = new double[ws[layer].length];
-
-                for (int neuron = 0; neuron < ws[layer].length; neuron++) {
-                    double sum = 0;
-                    for (int i = 0; i < ws[layer][neuron].length; i++) {
-                        double weight = ws[layer][neuron][i];
-                        double input = 0;
-                        if(i < ws[layer][neuron].length-1)
-                            input = _inputs[i];
-                        else
-                            input = 1.0;
-                        double strength = weight * input;
-                        sum += strength;
-                    }
-
-                    double activation = sigmoid(sum);
-
-                    outputs[neuron] = activation;
-                }
-
-                _inputs = outputs;
-
-                if (layer != ws.length - 1) {
-                    push(outputs);
-                    continue;
-                }
-
-                // This is the output from the ANN.
-                double output2 = outputs[0];
-
-                // So here's it error.
-                double error = ideals[inputno] - output2;
-
-                double[] outputs1 = pop();
-
-                // Initialize index into prior weight changes container for momentum.
-                int dwi = 0;
-
-                // Initialiaze the prior weight container
-                // Note: we could possibly initialize this more elegantly elsewhere except we may NOT know
-                // the dynamic size of output1.
-                if(dws == null) {
-                    int sz = (ws.length - 1) * ws[layer].length * outputs1.length + outputs1.length * ws[0].length;
-
-                    dws = new double[sz];
-                }
-
-                // Backpropagate error to hidden layers.
-                for (int i = layer; i > 0; i--) {
-                    // For each neuron in the layer...
-                    for (int neuron = 0; neuron < ws[layer].length; neuron++) {
-                        // For each output of a neuron in the layer...
-                        for (int j = 0; j < outputs1.length; j++) {
-                            // Get hidden neuron's output
-                            double output1 = outputs1[j];
-
-                            // Compute the weight change in direction of first derivative
-                            double dw = LEARNING_RATE * error * output1 * output2 * (1.0 - output2);
-
-                            // Get current weight
-                            double curw = ws[layer][neuron][j];
-
-                            // Compute new weight taking into account momentum
-                            double neww = curw + dw + dws[dwi] * MOMENTUM;
-
-                            // Update weight for the layer's neuron's output
-                            ws[layer][neuron][j] = neww;
-
-                            // Update the weight change
-                            dws[dwi++] = dw;
-                        }
-                    }
-
-                }
-
-                // Backpropagate error to input layer.
-                // (This is a hack as the code is nearly same for hidden layers...we'll integrate the two some day.)
-                for (int j = 0; j < outputs1.length; j++) {
-                    for (int neuron = 0; neuron < ws[0].length; neuron++) {
-                        double output0 = inputs[inputno][j];
-
-                        double output1 = outputs1[neuron];
+    public BackpropMomentumNetwork() {
+        super();
+    }
 
-                        double dw = LEARNING_RATE * error * output0 * output1 * (1.0 - output1);
+    /**
+     * Constructor for a network with bias, momentum and random weights.
+     * @param sizes Number of inputs followed by the number of neurons in each layer
+     * @param ran   Random number generator
+     */
+    public BackpropMomentumNetwork(int[] sizes, Random ran) {
+        super(sizes, ran);
+    }
 
-                        double curw = ws[0][neuron][j];
+    /**
+     * Sets the momentum, e.g., to tune it.
+     * @param momentum Fraction of the prior weight change
+     */
+    public void setMomentum(double momentum) {
+        this.momentum = momentum;
+    }
 
-                        double neww = curw + dw + dws[dwi] * MOMENTUM;
+    /**
+     * Changes a weight taking into account momentum.
+     * @param index Index of the weight
+     * @param dw    Weight change
+     */
+    @Override
+    protected void update(int index, double dw) {
+        // Compute new weight taking into account momentum
+        ws[index] += dw + dws[index] * momentum;
 
-                        ws[0][neuron][j] = neww;
+        // Update the weight change
+        dws[index] = dw;
+    }
 
-                        // Update the weight change
-                        dws[dwi++] = dw;
+    /**
+     * Gets the number of values of training state besides the weights, including the prior weight changes.
+     * @return Number of values
+     */
+    @Override
+    public int getStateSize() {
+        return super.getStateSize() + dws.length;
+    }
 
-                    }
-                }
-                errorSum += error * error;
+    /**
+     * Copies the training state besides the weights out with the prior weight changes last.
+     * @param state Destination, getStateSize() long
+     */
+    @Override
+    public void getState(double[] state) {
+        super.getState(state);
 
-            }
-        }
+        System.arraycopy(dws, 0, state, super.getStateSize(), dws.length);
+    }
 
-        double mse = errorSum / ideals.length;
+    /**
+     * Copies the training state besides the weights in with the prior weight changes last.
+     * @param state Source, getStateSize() long
+     */
+    @Override
+    public void setState(double[] state) {
+        super.setState(state);
 
-        return mse;
+        System.arraycopy(state, super.getStateSize(), dws, 0, dws.length);
     }
 }
@@ -22,8 +22,23 @@
  */
 package javaai.ann.learn.bpx;
 
+import javaai.util.Helper;
+import javaai.util.Kernels;
+import javaai.util.LogSink;
+import javaai.util.Metrics;
+import javaai.util.Sigmoid;
+
+import java.io.IOException;
+import java.util.Random;
+
 /**
  * This class implements a basic ANN as an example of backpropagation.
+ * <p>The network has any number of layers of any width. All weights live in one flat array, layer
+ * after layer, and within a layer neuron after neuron, each neuron's weights in input order followed
+ * by its bias, if any. So a neuron's weighted sum walks contiguous memory and the offset of weight i
+ * of neuron n in layer k is offsets[k] + n * strides[k] + i.</p>
+ * <p>Layer 0 is the first layer with weights, i.e., the first hidden layer; the inputs are not a layer
+ * of neurons.</p>
  * @see "https://www.nnwj.de/backpropagation.html"
  * @author Ron.Coleman
  */
@@ -32,8 +47,11 @@ public class BackpropNetwork {
 
     public final static double LEARNING_RATE = 0.25;
 
-    // Weight matrix
-    private double[][][] ws = {
+    // Rows per batch of batched compute
+    public final static int COMPUTE_ROWS = 256;
+
+    // Initial weight matrix
+    protected final static double[][][] WS = {
             // layer 0 (input)
 
             // layer 1 (hidden)
@@ -55,198 +73,720 @@ public class BackpropNetwork {
     };
 
     // Output ideal pattern to train
-    protected double[] ideals = {
-            0,
-            1
+    protected double[][] ideals = {
+            {0},
+            {1}
     };
 
+    // Weights of all layers
+    protected final double[] ws;
+
+    // Number of inputs followed by the number of neurons in each layer
+    protected final int[] sizes;
+
+    // Start of each layer's weights
+    protected final int[] offsets;
+
+    // Weights per neuron in each layer, i.e., inputs plus bias
+    protected final int[] strides;
+
+    // True if each neuron has a bias weight
+    protected final boolean bias;
+
+    // Layer outputs and deltas of train and compute
+    protected final Workspace workspace;
+
+    // Patterns per weight update, 1 to update after every pattern
+    protected int batchSize = 1;
+
+    // Layer outputs, deltas and gradients of a mini-batch or null
+    protected Workspace batch = null;
+
+    // Rule to change the weights by the gradient or null to change each weight with update
+    protected Optimizer optimizer = null;
+
+    // Learning rate without an optimizer
+    protected double rate = LEARNING_RATE;
+
+    // Activation of every neuron
+    protected Sigmoid activation = new Sigmoid();
+
+    // Layer outputs of batched compute or null until first needed
+    protected Workspace scoring = null;
+
+    // Training telemetry or null for none
+    protected Metrics metrics = null;
+
     public static void main(String[] args) {
         BackpropNetwork bp = new BackpropNetwork();
 
         run(bp);
     }
 
+    /**
+     * Constructor for the 2-2-1 network without bias.
+     */
+    public BackpropNetwork() {
+        this(WS, false);
+    }
+
+    /**
+     * Constructor for a network with given weights.
+     * @param table Weights by layer, neuron and input with the bias, if any, last
+     * @param bias  True if the last weight of each neuron is its bias
+     */
+    public BackpropNetwork(double[][][] table, boolean bias) {
+        this(getSizes(table, bias), bias);
+
+        int index = 0;
+
+        for (double[][] layer : table)
+            for (double[] neuron : layer)
+                for (double w : neuron)
+                    ws[index++] = w;
+    }
+
+    /**
+     * Constructor for a network with random weights.
+     * @param sizes Number of inputs followed by the number of neurons in each layer
+     * @param bias  True if each neuron has a bias weight
+     * @param ran   Random number generator
+     */
+    public BackpropNetwork(int[] sizes, boolean bias, Random ran) {
+        this(sizes, bias);
+
+        // Uniform with variance 1 / fan-in so sums start near the sigmoid's steep region
+        for (int layer = 0; layer < strides.length; layer++) {
+            double range = Math.sqrt(3.0 / strides[layer]);
+
+            int end = offsets[layer] + sizes[layer + 1] * strides[layer];
+
+            for (int index = offsets[layer]; index < end; index++)
+                ws[index] = (2 * ran.nextDouble() - 1) * range;
+        }
+    }
+
+    /**
+     * Constructor for a network with zero weights.
+     * @param sizes Number of inputs followed by the number of neurons in each layer
+     * @param bias  True if each neuron has a bias weight
+     */
+    protected BackpropNetwork(int[] sizes, boolean bias) {
+        this.sizes = sizes.clone();
+        this.bias = bias;
+
+        offsets = new int[sizes.length - 1];
+        strides = new int[sizes.length - 1];
+
+        ws = new double[layout(sizes, bias, offsets, strides)];
+
+        workspace = new Workspace(sizes);
+    }
+
+    /**
+     * Lays out the weights of all layers in one array, layer by layer and neuron by neuron.
+     * @param sizes   Number of inputs followed by the number of neurons in each layer
+     * @param bias    True if each neuron has a bias weight
+     * @param offsets Buffer for the start of each layer's weights
+     * @param strides Buffer for the weights per neuron in each layer
+     * @return Number of weights
+     */
+    static int layout(int[] sizes, boolean bias, int[] offsets, int[] strides) {
+        int count = 0;
+
+        for (int layer = 0; layer < offsets.length; layer++) {
+            offsets[layer] = count;
+
+            strides[layer] = sizes[layer] + (bias ? 1 : 0);
+
+            count += sizes[layer + 1] * strides[layer];
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the layer sizes of a weight table.
+     * @param table Weights by layer, neuron and input
+     * @param bias  True if the last weight of each neuron is its bias
+     * @return Number of inputs followed by the number of neurons in each layer
+     */
+    static int[] getSizes(double[][][] table, boolean bias) {
+        int[] sizes = new int[table.length + 1];
+
+        sizes[0] = table[0][0].length - (bias ? 1 : 0);
+
+        for (int layer = 0; layer < table.length; layer++)
+            sizes[layer + 1] = table[layer].length;
+
+        return sizes;
+    }
+
+    /**
+     * Sets the patterns to train.
+     * @param inputs Inputs by pattern
+     * @param ideals Ideal outputs by pattern
+     */
+    public void setTrainingSet(double[][] inputs, double[][] ideals) {
+        this.inputs = inputs;
+        this.ideals = ideals;
+    }
+
+    /**
+     * Sets the mini-batch size. With more than one pattern per batch, the weight changes are
+     * averaged over the batch and applied once per batch, and each layer is computed for the whole
+     * batch at once as a matrix-matrix product.
+     * @param batchSize Patterns per weight update, 1 to update after every pattern
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+
+        batch = this.batchSize > 1 || optimizer != null ? new Workspace(sizes, this.batchSize, ws.length) : null;
+    }
+
+    /**
+     * Sets the sigmoid, e.g., an approximate one to go faster. Backpropagation assumes the derivative
+     * of the sigmoid so only its mode can change.
+     * @param activation Sigmoid
+     */
+    public void setActivation(Sigmoid activation) {
+        this.activation = activation;
+    }
+
+    /**
+     * Sets the optimizer which changes the weights by the gradient of each mini-batch, or of each
+     * pattern if the batch size is 1, in place of the learning rate and update.
+     * @param optimizer Optimizer or null to go back to update
+     */
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+
+        if (optimizer != null)
+            optimizer.reset(ws.length);
+
+        setBatchSize(batchSize);
+    }
+
+    /**
+     * Sets the metrics to record the epochs, loss and phase timings of training to. With a batch workspace
+     * the update phase and the gradient norm of the last batch of each epoch are recorded too; training one pattern at a time changes the
+     * weights as it backpropagates, so its backward phase includes the update.
+     * @param metrics Metrics or null for none
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the learning rate.
+     * @return Learning rate of the optimizer, if any, otherwise of update
+     */
+    public double getRate() {
+        return optimizer == null ? rate : optimizer.getRate();
+    }
+
+    /**
+     * Sets the learning rate, e.g., to decay it when the loss stops improving.
+     * @param rate Learning rate of the optimizer, if any, otherwise of update
+     */
+    public void setRate(double rate) {
+        if (optimizer == null)
+            this.rate = rate;
+        else
+            optimizer.setRate(rate);
+    }
+
     /**
      * Runs one epoch of the training function.
      * @return Training error as mean square error.
      */
     public double train() {
+        long started = metrics == null ? 0 : System.nanoTime();
+
         // Error squared sum
         double errorSum = 0;
 
         // For each set of inputs, compute the training error
-        for (int inputno = 0; inputno < inputs.length; inputno++) {
-            // Clear the temporary storage.
-            clear();
+        if (batch == null) {
+            for (int inputno = 0; inputno < inputs.length; inputno++)
+                errorSum += train(workspace, inputs[inputno], ideals[inputno]);
+        }
+        else {
+            for (int start = 0; start < inputs.length; start += batchSize) {
+                int rows = Math.min(batchSize, inputs.length - start);
 
-            // Get the inputs for this input cycle
-            double[] _inputs = inputs[inputno];
+                errorSum += train(batch, start, rows);
 
-            // For each layer do feedforward
-            for (int layer = 0; layer < ws.length; layer++) {
+                if (metrics != null && start + rows == inputs.length)
+                    measure(batch, rows);
+
+                apply(batch, rows);
+            }
+        }
 
-                // Allocate storage for layer outputs
-                double[] outputs = new double[ws[layer].length];
+        // Compute the mean square error
+        double mse = errorSum / (inputs.length * sizes[sizes.length - 1]);
 
-                // For each neuron in the layer
-                for (int neuron = 0; neuron < ws[layer].length; neuron++) {
+        if (metrics != null)
+            metrics.epoch(inputs.length, mse, System.nanoTime() - started);
 
-                    // Initialize the sum
-                    double sum = 0;
+        return mse;
+    }
 
-                    // Compute the weighted sum
-                    for (int i = 0; i < ws[layer][neuron].length; i++) {
-                        // Get weight for the input
-                        double weight = ws[layer][neuron][i];
+    /**
+     * Trains one pattern.
+     * @param work   Workspace
+     * @param input  Inputs
+     * @param ideal  Ideal outputs
+     * @return Square error summed over the outputs
+     */
+    protected double train(Workspace work, double[] input, double[] ideal) {
+        int layers = strides.length;
 
-                        // Get input
-                        double input = _inputs[i];
+        long started = metrics == null ? 0 : System.nanoTime();
 
-                        // Get the strength of this output
-                        double strength = weight * input;
+        // Do feedforward and keep each layer's outputs which we need for backpropagation
+        forward(work, input);
 
-                        // Add to total strength
-                        sum += strength;
-                    }
+        long forwarded = metrics == null ? 0 : System.nanoTime();
 
-                    // Get the neuron's activation as its output
-                    double activation = sigmoid(sum);
+        double[][] outputs = work.outputs;
 
-                    // Update the neuron's output
-                    outputs[neuron] = activation;
-                }
+        // Compute the error and delta of each output neuron
+        double[] deltas = work.deltas[layers - 1];
 
-                // Outputs of neuron are inputs to next layer
-                _inputs = outputs;
+        double errorSum = 0;
 
-                // Unless layer is last layer, save layer's output which we need for backpropagation
-                if (layer != ws.length - 1) {
-                    push(outputs);
+        for (int neuron = 0; neuron < deltas.length; neuron++) {
+            double output = outputs[layers][neuron];
 
-                    continue;
-                }
+            double error = ideal[neuron] - output;
 
-                // This is the output of the three layers 0, 1, 2 ANN.
-                double output2 = outputs[0];
+            // Update total square error
+            errorSum += error * error;
 
-                // Compute the error
-                double error = ideals[inputno] - output2;
+            deltas[neuron] = error * output * (1.0 - output);
+        }
 
-                // Get the hidden layer outputs
-                double[] outputs1 = pop();
+        // Backpropagate the deltas layer by layer
+        for (int layer = layers - 1; layer >= 0; layer--) {
+            double[] _inputs = outputs[layer];
 
-                // Backpropagate the error to hidden layer
-                for (int i = layer; i > 0; i--) {
-                    // For each neuron in the layer...
-                    for (int neuron = 0; neuron < ws[layer].length; neuron++) {
-                        // For each output of a neuron in the layer...
-                        for (int j = 0; j < outputs1.length; j++) {
-                            // Get hidden neuron's output
-                            double output1 = outputs1[j];
+            deltas = work.deltas[layer];
 
-                            // Compute the weight change in direction of first derivative
-                            double dw = LEARNING_RATE * error * output1 * output2 * (1.0 - output2);
+            // Compute the deltas of the layer below with the weights before they change: weights' x deltas
+            if (layer > 0) {
+                double[] belows = work.deltas[layer - 1];
 
-                            // Get current weight
-                            double curw = ws[layer][neuron][j];
+                for (int j = 0; j < belows.length; j++)
+                    belows[j] = 0;
 
-                            // Compute new weight
-                            double neww = curw + dw;
+                Kernels.gemvT(deltas.length, belows.length, ws, offsets[layer], strides[layer], deltas, 0, belows, 0);
 
-                            // Update weight for the layer's neuron's output
-                            ws[layer][neuron][j] = neww;
-                        }
-                    }
+                for (int j = 0; j < belows.length; j++)
+                    belows[j] *= _inputs[j] * (1.0 - _inputs[j]);
+            }
 
-                }
+            // Change each weight in direction of first derivative
+            for (int neuron = 0; neuron < deltas.length; neuron++) {
+                int base = offsets[layer] + neuron * strides[layer];
 
-                // Backpropagate error to input layer.
-                // (This is a hack as the code is nearly same for hidden layers...we'll integrate the two some day.)
-                // Also note: the outer j loop is over the outputs whereas the inner loop is over the neurons --
-                // opposite for propagating the error to the hidden layer.
-                final int INPUT_LAYER = 0;
-                for (int j = 0; j < outputs1.length; j++) {
-                    for (int neuron = 0; neuron < ws[INPUT_LAYER].length; neuron++) {
-                        // Get input neuron's output
-                        double output0 = inputs[inputno][j];
+                double step = rate * deltas[neuron];
 
-                        // Get hidden neuron's output
-                        double output1 = outputs1[neuron];
+                for (int i = 0; i < _inputs.length; i++)
+                    update(base + i, step * _inputs[i]);
 
-                        // Compute the weight change in direction of first derivative
-                        double dw = LEARNING_RATE * error * output0 * output1 * (1.0 - output1);
+                // The bias or "pseudo input" is 1.0
+                if (bias)
+                    update(base + _inputs.length, step);
+            }
+        }
 
-                        // Get current weight
-                        double curw = ws[INPUT_LAYER][neuron][j];
+        if (metrics != null) {
+            metrics.forwardTime.record(forwarded - started);
 
-                        // Compute new weight
-                        double neww = curw + dw;
+            metrics.backwardTime.record(System.nanoTime() - forwarded);
+        }
 
-                        // Update weight for the layer's neuron's output
-                        ws[INPUT_LAYER][neuron][j] = neww;
-                    }
-                }
+        return errorSum;
+    }
+
+    /**
+     * Computes the gradient of a mini-batch of patterns without changing the weights.
+     * @param work  Batch workspace, whose gradients are added to
+     * @param start First pattern
+     * @param rows  Number of patterns
+     * @return Square error summed over the patterns and outputs
+     */
+    protected double train(Workspace work, int start, int rows) {
+        int layers = strides.length;
+
+        // Pack the inputs as the rows of a matrix
+        double[] x = work.outputs[0];
+
+        for (int row = 0; row < rows; row++)
+            System.arraycopy(inputs[start + row], 0, x, row * sizes[0], sizes[0]);
+
+        long started = metrics == null ? 0 : System.nanoTime();
+
+        forward(work, rows);
+
+        long forwarded = metrics == null ? 0 : System.nanoTime();
+
+        // Compute the error and delta of each output neuron for each pattern
+        double[] outputs = work.outputs[layers];
+
+        double[] deltas = work.deltas[layers - 1];
+
+        int width = sizes[layers];
+
+        double errorSum = 0;
+
+        for (int row = 0; row < rows; row++) {
+            double[] ideal = ideals[start + row];
+
+            for (int neuron = 0; neuron < width; neuron++) {
+                double output = outputs[row * width + neuron];
+
+                double error = ideal[neuron] - output;
 
-                // Update total square error
                 errorSum += error * error;
+
+                deltas[row * width + neuron] = error * output * (1.0 - output);
             }
         }
 
-        // Compute the mean square error
-        double mse = errorSum / ideals.length;
+        double[] gradients = work.gradients;
 
-        return mse;
+        // Backpropagate the deltas layer by layer
+        for (int layer = layers - 1; layer >= 0; layer--) {
+            double[] _inputs = work.outputs[layer];
+
+            deltas = work.deltas[layer];
+
+            int fanIn = sizes[layer];
+
+            int neurons = sizes[layer + 1];
+
+            // Compute the deltas of the layer below: deltas x weights, times the sigmoid derivative
+            if (layer > 0) {
+                double[] belows = work.deltas[layer - 1];
+
+                for (int k = 0; k < rows * fanIn; k++)
+                    belows[k] = 0;
+
+                Kernels.gemmNN(rows, fanIn, neurons, deltas, 0, neurons, ws, offsets[layer], strides[layer],
+                        belows, 0, fanIn);
+
+                for (int k = 0; k < rows * fanIn; k++)
+                    belows[k] *= _inputs[k] * (1.0 - _inputs[k]);
+            }
+
+            // Sum the gradient over the batch: transposed deltas x inputs
+            Kernels.gemmTN(neurons, fanIn, rows, deltas, 0, neurons, _inputs, 0, fanIn,
+                    gradients, offsets[layer], strides[layer]);
+
+            // The bias or "pseudo input" is 1.0 so its gradient is the sum of the deltas
+            if (bias) {
+                for (int neuron = 0; neuron < neurons; neuron++) {
+                    double sum = 0;
+
+                    for (int row = 0; row < rows; row++)
+                        sum += deltas[row * neurons + neuron];
+
+                    gradients[offsets[layer] + neuron * strides[layer] + fanIn] += sum;
+                }
+            }
+        }
+
+        if (metrics != null) {
+            metrics.forwardTime.record(forwarded - started);
+
+            metrics.backwardTime.record(System.nanoTime() - forwarded);
+        }
+
+        return errorSum;
     }
 
-    public double compute(double[] inputs) {
-        double[] outputs = null;
+    /**
+     * Changes the weights by the mean gradient of a batch and clears the gradient.
+     * @param work Batch workspace
+     * @param rows Number of patterns in the batch
+     */
+    protected void apply(Workspace work, int rows) {
+        double[] gradients = work.gradients;
+
+        long started = metrics == null ? 0 : System.nanoTime();
+
+        if (optimizer != null)
+            optimizer.step(ws, gradients, 1.0 / rows);
+
+        else {
+            double r = rate / rows;
+
+            for (int index = 0; index < gradients.length; index++) {
+                update(index, r * gradients[index]);
+
+                gradients[index] = 0;
+            }
+        }
+
+        if (metrics != null)
+            metrics.updateTime.record(System.nanoTime() - started);
+    }
+
+    /**
+     * Records the norm of the mean gradient of a batch before it is applied. It costs a pass over
+     * the gradient, so trainers record it for the last batch of each epoch only.
+     * @param work Batch workspace
+     * @param rows Number of patterns in the batch
+     */
+    protected void measure(Workspace work, int rows) {
+        double[] gradients = work.gradients;
+
+        metrics.gradientNorm.set(Math.sqrt(Kernels.dot(gradients, 0, gradients, 0, gradients.length)) / rows);
+    }
+
+    /**
+     * Changes a weight.
+     * @param index Index of the weight
+     * @param dw    Weight change
+     */
+    protected void update(int index, double dw) {
+        ws[index] += dw;
+    }
+
+    /**
+     * Makes a workspace, e.g., for another thread to compute with this network.
+     * @return Workspace
+     */
+    public Workspace newWorkspace() {
+        return new Workspace(sizes);
+    }
+
+    /**
+     * Makes a workspace to compute batches of inputs, e.g., for another thread.
+     * @param rows Most rows per batch
+     * @return Workspace
+     */
+    public Workspace newWorkspace(int rows) {
+        return new Workspace(sizes, rows, 0);
+    }
+
+    /**
+     * Feeds inputs forward through the layers.
+     * @param work   Workspace for the outputs of each layer
+     * @param inputs Inputs
+     */
+    protected void forward(Workspace work, double[] inputs) {
+        int layers = strides.length;
+
+        double[][] outputs = work.outputs;
+
+        outputs[0] = inputs;
 
         // For each layer do feedforward
-        for (int layer = 0; layer < ws.length; layer++) {
+        for (int layer = 0; layer < layers; layer++) {
+            double[] _inputs = outputs[layer];
 
-            // Allocate storage for layer outputs
-            outputs = new double[ws[layer].length];
+            double[] _outputs = outputs[layer + 1];
 
-            // For each neuron in the layer
-            for (int neuron = 0; neuron < ws[layer].length; neuron++) {
+            int neurons = _outputs.length;
 
-                // Initialize the sum
-                double sum = 0;
+            int base = offsets[layer];
 
-                // Compute the weighted sum
-                for (int i = 0; i < ws[layer][neuron].length; i++) {
-                    // Get weight for the input
-                    double weight = ws[layer][neuron][i];
+            // The bias or "pseudo input" is 1.0
+            for (int neuron = 0; neuron < neurons; neuron++)
+                _outputs[neuron] = bias ? ws[base + neuron * strides[layer] + _inputs.length] : 0;
 
-                    // Get input
-                    double input = inputs[i];
+            // Compute the weighted sums
+            Kernels.gemv(neurons, _inputs.length, ws, base, strides[layer], _inputs, 0, _outputs, 0);
 
-                    // Get the strength of this output
-                    double strength = weight * input;
+            // Get each neuron's activation as its output
+            for (int neuron = 0; neuron < neurons; neuron++)
+                _outputs[neuron] = sigmoid(_outputs[neuron]);
+        }
+    }
 
-                    // Add to total strength
-                    sum += strength;
-                }
+    /**
+     * Feeds a batch of inputs forward through the layers, each layer as the matrix product of its
+     * inputs and its transposed weights.
+     * @param work Batch workspace with the inputs in its first matrix
+     * @param rows Number of rows
+     */
+    protected void forward(Workspace work, int rows) {
+        int layers = strides.length;
+
+        for (int layer = 0; layer < layers; layer++) {
+            double[] x = work.outputs[layer];
+
+            double[] y = work.outputs[layer + 1];
+
+            int fanIn = sizes[layer];
 
-                // Get the neuron's activation as its output
-                double activation = sigmoid(sum);
+            int neurons = sizes[layer + 1];
 
-                // Update the neuron's output
-                outputs[neuron] = activation;
+            // The bias or "pseudo input" is 1.0
+            for (int neuron = 0; neuron < neurons; neuron++) {
+                double b = bias ? ws[offsets[layer] + neuron * strides[layer] + fanIn] : 0;
+
+                for (int row = 0; row < rows; row++)
+                    y[row * neurons + neuron] = b;
             }
 
-            // Outputs of neuron are inputs to next layer
-            inputs = outputs;
+            // Compute the weighted sums: inputs x weights'
+            Kernels.gemmNT(rows, neurons, fanIn, x, 0, fanIn, ws, offsets[layer], strides[layer], y, 0, neurons);
+
+            for (int k = 0; k < rows * neurons; k++)
+                y[k] = sigmoid(y[k]);
+        }
+    }
+
+    /**
+     * Computes the first output for inputs.
+     * @param inputs Inputs
+     * @return Output
+     */
+    public double compute(double[] inputs) {
+        forward(workspace, inputs);
+
+        return workspace.getOutputs()[0];
+    }
+
+    /**
+     * Computes the outputs for inputs with a workspace, e.g., one per thread.
+     * @param work   Workspace
+     * @param inputs Inputs
+     * @return Outputs in the workspace, overwritten by the next pass
+     */
+    public double[] compute(Workspace work, double[] inputs) {
+        forward(work, inputs);
+
+        return work.getOutputs();
+    }
+
+    /**
+     * Computes the outputs for inputs.
+     * @param inputs  Inputs
+     * @param outputs Buffer for the outputs
+     */
+    public void compute(double[] inputs, double[] outputs) {
+        forward(workspace, inputs);
+
+        System.arraycopy(workspace.getOutputs(), 0, outputs, 0, outputs.length);
+    }
+
+    /**
+     * Computes the outputs for many inputs, a batch at a time, so each layer is one matrix product
+     * whose weights stay in cache across the rows of the batch.
+     * @param inputs  Inputs by row
+     * @param outputs Buffers for the outputs by row
+     */
+    public void compute(double[][] inputs, double[][] outputs) {
+        if (scoring == null)
+            scoring = newWorkspace(COMPUTE_ROWS);
+
+        int width = sizes[0];
+
+        int outs = sizes[sizes.length - 1];
+
+        double[] x = scoring.outputs[0];
+
+        double[] y = scoring.getOutputs();
+
+        for (int start = 0; start < inputs.length; start += scoring.rows) {
+            int rows = Math.min(scoring.rows, inputs.length - start);
+
+            for (int row = 0; row < rows; row++)
+                System.arraycopy(inputs[start + row], 0, x, row * width, width);
+
+            forward(scoring, rows);
+
+            for (int row = 0; row < rows; row++)
+                System.arraycopy(y, row * outs, outputs[start + row], 0, outs);
+        }
+    }
+
+    /**
+     * Computes the outputs for many inputs in flat row-major buffers with a workspace, e.g., one per thread.
+     * @param work    Workspace from newWorkspace(rows)
+     * @param inputs  Inputs, rows x number of inputs
+     * @param outputs Buffer for the outputs, rows x number of outputs
+     * @param rows    Number of rows
+     */
+    public void compute(Workspace work, double[] inputs, double[] outputs, int rows) {
+        int width = sizes[0];
+
+        int outs = sizes[sizes.length - 1];
+
+        for (int start = 0; start < rows; start += work.rows) {
+            int count = Math.min(work.rows, rows - start);
+
+            System.arraycopy(inputs, start * width, work.outputs[0], 0, count * width);
+
+            forward(work, count);
+
+            System.arraycopy(work.getOutputs(), 0, outputs, start * outs, count * outs);
         }
+    }
 
-        return outputs[0];
+    /**
+     * Gets the weights.
+     * @return Weights of all layers in one array, shared with the network
+     */
+    public double[] getWeights() {
+        return ws;
+    }
+
+    /**
+     * Gets the number of values of training state besides the weights, e.g., to checkpoint it.
+     * @return Number of values
+     */
+    public int getStateSize() {
+        return optimizer == null ? 0 : optimizer.getStateSize();
+    }
+
+    /**
+     * Copies the training state besides the weights out, e.g., the optimizer's moving averages.
+     * @param state Destination, getStateSize() long
+     */
+    public void getState(double[] state) {
+        if (optimizer != null)
+            optimizer.getState(state, 0);
+    }
+
+    /**
+     * Copies the training state besides the weights in, e.g., to resume from a checkpoint.
+     * @param state Source, getStateSize() long
+     */
+    public void setState(double[] state) {
+        if (optimizer != null)
+            optimizer.setState(state, 0);
     }
 
     public static void run(BackpropNetwork bp) {
-        for(int epoch=0; epoch < NUM_EPOCHS; epoch++) {
-            double error = bp.train();
+        // Print the error of every epoch off the training thread
+        Metrics metrics = new Metrics();
+
+        metrics.start(new LogSink(null, "%2$s"), Helper.LOG_PERIOD);
+
+        Metrics last = bp.metrics;
 
-            System.out.println(error);
+        bp.setMetrics(metrics);
+
+        try {
+            for(int epoch=0; epoch < NUM_EPOCHS; epoch++)
+                bp.train();
+        }
+        finally {
+            bp.setMetrics(last);
+
+            try {
+                metrics.stop();
+            }
+            catch (IOException e) {
+                System.err.println("log not closed: " + e.getMessage());
+            }
         }
 
         test(bp);
@@ -274,32 +814,7 @@ public class BackpropNetwork {
         }
     }
 
-    protected double[][] stack = new double[inputs.length][];
-    protected int top = -1;
-
-    protected void push(double[] outputs) {
-        double[] store = new double[outputs.length];
-
-        for(int k=0; k < outputs.length; k++)
-            store[k] = outputs[k];
-
-        top++;
-        stack[top] = store;
-    }
-
-    protected double[] pop() {
-        if(top < 0)
-            return null;
-
-        return stack[top--];
-    }
-
-    protected void clear() {
-        top = -1;
-    }
-
-
     protected double sigmoid(double x) {
-        return 1.0 / (1 + Math.exp(-x));
+        return activation.apply(x);
     }
 }
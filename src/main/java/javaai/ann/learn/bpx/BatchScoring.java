@@ -0,0 +1,108 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.util.Random;
+
+/**
+ * This class scores a million rows with a network one row at a time and then a batch at a time, and
+ * compares the throughput and the outputs.
+ * @author Ron.Coleman
+ */
+public class BatchScoring {
+    public final static int NUM_ROWS = Integer.parseInt(System.getProperty("rows", "1000000"));
+
+    // Rows generated and scored per chunk
+    public final static int CHUNK_ROWS = 4096;
+
+    /**
+     * Runs the comparison.
+     * @param args Command line arguments: optional layer sizes, e.g., 32 64 64 4
+     */
+    public static void main(String[] args) {
+        int[] sizes = {32, 64, 64, 4};
+
+        if (args.length > 1) {
+            sizes = new int[args.length];
+
+            for (int k = 0; k < args.length; k++)
+                sizes[k] = Integer.parseInt(args[k]);
+        }
+
+        BackpropNetwork bp = new BackpropNetwork(sizes, true, new Random(0));
+
+        int width = sizes[0];
+        int outs = sizes[sizes.length - 1];
+
+        // Multiply-adds per row
+        long work = 0;
+
+        for (int layer = 0; layer < sizes.length - 1; layer++)
+            work += (long) sizes[layer] * sizes[layer + 1];
+
+        double[][] inputs = new double[CHUNK_ROWS][width];
+        double[][] single = new double[CHUNK_ROWS][outs];
+        double[][] batched = new double[CHUNK_ROWS][outs];
+
+        Random ran = new Random(1);
+
+        for (int trial = 0; trial < 2; trial++) {
+            long singleNs = 0;
+            long batchedNs = 0;
+
+            double maxDiff = 0;
+
+            for (int done = 0; done < NUM_ROWS; done += CHUNK_ROWS) {
+                for (double[] input : inputs)
+                    for (int i = 0; i < width; i++)
+                        input[i] = ran.nextDouble();
+
+                long start = System.nanoTime();
+
+                for (int row = 0; row < CHUNK_ROWS; row++)
+                    bp.compute(inputs[row], single[row]);
+
+                long middle = System.nanoTime();
+
+                bp.compute(inputs, batched);
+
+                long end = System.nanoTime();
+
+                singleNs += middle - start;
+                batchedNs += end - middle;
+
+                for (int row = 0; row < CHUNK_ROWS; row++)
+                    for (int o = 0; o < outs; o++)
+                        maxDiff = Math.max(maxDiff, Math.abs(single[row][o] - batched[row][o]));
+            }
+
+            int rows = NUM_ROWS / CHUNK_ROWS * CHUNK_ROWS;
+
+            System.out.printf("trial %d: one at a time %.0f rows/s %.2f GFLOPS, batched %.0f rows/s %.2f GFLOPS, " +
+                            "speedup %.2f, max diff %.1e\n", trial,
+                    rows / (singleNs / 1e9), 2.0 * work * rows / singleNs,
+                    rows / (batchedNs / 1e9), 2.0 * work * rows / batchedNs,
+                    (double) singleNs / batchedNs, maxDiff);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import static javaai.ann.learn.bpx.XorDeepNetwork.XOR_IDEALS;
+import static javaai.ann.learn.bpx.XorDeepNetwork.XOR_INPUTS;
+
+/**
+ * This class checkpoints a network while it trains, every so many epochs or seconds, without the
+ * training thread ever waiting on the disk.
+ * <p>A checkpoint copies the weights and training state, e.g., the optimizer's moving averages, into
+ * one of two buffers and hands it to a background thread, which writes it as a {@link Snapshot}.
+ * While the writer works on one buffer the trainer fills the other; if the trainer checkpoints again
+ * before the writer gets to a buffer, the newer copy replaces it, so the trainer only ever waits for
+ * the copy. Each snapshot is moved into place when complete, so the file always holds the latest
+ * complete checkpoint, and {@link #resume} picks up training from it.</p>
+ * @author Ron.Coleman
+ */
+public class Checkpointer implements AutoCloseable {
+    // Network being trained
+    protected final BackpropNetwork network;
+
+    // Snapshot file path
+    protected final String path;
+
+    // Epochs between checkpoints or 0 for none by epoch
+    protected final int epochs;
+
+    // Milliseconds between checkpoints or 0 for none by time
+    protected final long millis;
+
+    // Copies of the weights and state, i.e., the double buffer
+    protected final double[][] weights = new double[2][];
+    protected final double[][] states = new double[2][];
+    protected final long[] marks = new long[2];
+
+    // Buffer waiting for the writer and buffer being written or -1 if none
+    protected int pending = -1;
+    protected int writing = -1;
+
+    // True once closed
+    protected boolean closed = false;
+
+    // Epoch and time of the last checkpoint
+    protected long lastEpoch;
+    protected long lastTime = System.currentTimeMillis();
+
+    // Number of checkpoints written
+    protected int written = 0;
+
+    // Last failure of the writer or null if none
+    protected volatile Exception failure = null;
+
+    // Background writer
+    protected final Thread writer;
+
+    /**
+     * Runs a demo: trains XOR with a checkpoint every 1000 epochs, stops halfway as if it crashed,
+     * resumes a new network from the checkpoint and checks it ends with the same weights as a run
+     * without the stop.
+     * @param args Command line arguments
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {2, 4, 4, 1};
+
+        int total = XorDeepNetwork.NUM_EPOCHS;
+
+        Path path = Files.createTempFile("xor", ".snapshot");
+
+        try {
+            // Uninterrupted run
+            BackpropNetwork expected = newXor(sizes);
+
+            for (int epoch = 0; epoch < total; epoch++)
+                expected.train();
+
+            // Run which stops halfway
+            BackpropNetwork first = newXor(sizes);
+
+            long start = System.nanoTime();
+
+            try (Checkpointer checkpointer = new Checkpointer(first, path.toString(), 1000, 0)) {
+                for (int epoch = 1; epoch <= total / 2 + 500; epoch++) {
+                    first.train();
+
+                    checkpointer.update(epoch);
+                }
+
+                System.out.printf("trained %d epochs in %.1f ms, %d checkpoints\n",
+                        total / 2 + 500, (System.nanoTime() - start) / 1e6, checkpointer.getWritten());
+            }
+
+            // Run which resumes, losing the epochs since the last checkpoint
+            BackpropNetwork second = newXor(sizes);
+
+            long epoch = resume(second, path.toString());
+
+            for (; epoch < total; epoch++)
+                second.train();
+
+            System.out.printf("resumed from epoch %d, same weights as uninterrupted %b\n",
+                    resume(newXor(sizes), path.toString()),
+                    Arrays.equals(expected.getWeights(), second.getWeights()));
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Gets the XOR network of the demo.
+     * @param sizes Layer sizes
+     * @return Network
+     */
+    static BackpropNetwork newXor(int[] sizes) {
+        BackpropNetwork network = new BackpropNetwork(sizes, true, new Random(0));
+
+        network.setTrainingSet(XOR_INPUTS, XOR_IDEALS);
+
+        network.setOptimizer(new Adam(0.01));
+
+        return network;
+    }
+
+    /**
+     * Constructor
+     * @param network Network being trained
+     * @param path    Snapshot file path
+     * @param epochs  Epochs between checkpoints or 0 for none by epoch
+     * @param millis  Milliseconds between checkpoints or 0 for none by time
+     */
+    public Checkpointer(BackpropNetwork network, String path, int epochs, long millis) {
+        this.network = network;
+        this.path = path;
+        this.epochs = epochs;
+        this.millis = millis;
+
+        for (int k = 0; k < 2; k++) {
+            weights[k] = new double[network.ws.length];
+            states[k] = new double[network.getStateSize()];
+        }
+
+        writer = new Thread(this::write, "checkpointer");
+
+        writer.setDaemon(true);
+
+        writer.start();
+    }
+
+    /**
+     * Resumes a network from its latest checkpoint, if any.
+     * @param network Network with the topology and optimizer of the one checkpointed
+     * @param path    Snapshot file path
+     * @return Epochs trained at the checkpoint or 0 if there's no checkpoint
+     * @throws Exception if the file is not a checkpoint of the network
+     */
+    public static long resume(BackpropNetwork network, String path) throws Exception {
+        if (!Files.exists(Paths.get(path)))
+            return 0;
+
+        return Snapshot.restore(network, path);
+    }
+
+    /**
+     * Checkpoints the network if enough epochs or time have gone by since the last checkpoint.
+     * Call it between epochs.
+     * @param epoch Epochs trained
+     * @return True if a checkpoint was taken
+     */
+    public boolean update(long epoch) {
+        boolean due = epochs > 0 && epoch - lastEpoch >= epochs;
+
+        if (!due && millis > 0)
+            due = System.currentTimeMillis() - lastTime >= millis;
+
+        if (due)
+            checkpoint(epoch);
+
+        return due;
+    }
+
+    /**
+     * Checkpoints the network now. It copies the weights and state and returns without waiting for the writer.
+     * The state is sized to the network's optimizer at the time, so the optimizer may be set after this is made.
+     * @param epoch Epochs trained
+     */
+    public void checkpoint(long epoch) {
+        int free;
+
+        // Take the buffer the writer isn't on; a pending one not yet taken is superseded
+        synchronized (this) {
+            free = writing == 0 ? 1 : 0;
+
+            if (pending == free)
+                pending = -1;
+        }
+
+        System.arraycopy(network.ws, 0, weights[free], 0, network.ws.length);
+
+        // The optimizer, and so the state, may have changed since the buffers were made
+        if (states[free].length != network.getStateSize())
+            states[free] = new double[network.getStateSize()];
+
+        network.getState(states[free]);
+
+        marks[free] = epoch;
+
+        synchronized (this) {
+            pending = free;
+
+            notifyAll();
+        }
+
+        lastEpoch = epoch;
+        lastTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes the checkpoints handed over until closed.
+     */
+    protected void write() {
+        while (true) {
+            int next;
+
+            synchronized (this) {
+                while (pending == -1 && !closed) {
+                    try {
+                        wait();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                if (pending == -1)
+                    return;
+
+                next = writing = pending;
+
+                pending = -1;
+            }
+
+            boolean done = false;
+
+            try {
+                Snapshot.write(network, weights[next], states[next], marks[next], path);
+
+                done = true;
+            }
+            catch (Exception e) {
+                failure = e;
+            }
+
+            synchronized (this) {
+                writing = -1;
+
+                if (done)
+                    written++;
+            }
+        }
+    }
+
+    /**
+     * Writes the pending checkpoint, if any, and stops the writer. If interrupted while waiting, it
+     * returns with the interrupt flag set and the writer finishes on its own; write failures are
+     * left to {@link #getFailure()}.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+
+            notifyAll();
+        }
+
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of checkpoints written.
+     * @return Number of checkpoints
+     */
+    public synchronized int getWritten() {
+        return written;
+    }
+
+    /**
+     * Gets the last failure of the writer, e.g., a full disk. Training goes on; the file keeps the
+     * last checkpoint written.
+     * @return Exception or null if none
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+}
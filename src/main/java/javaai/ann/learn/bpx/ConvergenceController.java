@@ -0,0 +1,481 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.util.Random;
+
+/**
+ * This class stops training when a network stops improving on held-out data, instead of after a
+ * fixed number of epochs.
+ * <p>Every so many epochs the trainer hands a copy of the weights to a background thread, which
+ * computes the mean square error on the validation patterns while training goes on. An evaluation
+ * improves if its loss is lower than the best one by more than the minimum delta, and the weights
+ * of the best evaluation are kept. After as many evaluations without improvement as the patience,
+ * or once the loss reaches the target, training stops; on a plateau, i.e., fewer evaluations without
+ * improvement, the learning rate decays instead. {@link #restore} then puts back the best weights.</p>
+ * <p>The hand-over is double-buffered like the {@link Checkpointer}'s: if the evaluator is behind, a
+ * newer copy replaces the one waiting, so the trainer only waits for the copy. The decisions reach the
+ * trainer at its next update, at most an evaluation late.</p>
+ * @author Ron.Coleman
+ */
+public class ConvergenceController implements AutoCloseable {
+    // Network being trained
+    protected final BackpropNetwork network;
+
+    // Validation patterns
+    protected final double[][] inputs;
+    protected final double[][] ideals;
+
+    // Epochs between evaluations
+    protected final int interval;
+
+    // Evaluations without improvement before stopping or 0 to never stop for that
+    protected int patience = 10;
+
+    // Least decrease of the loss that counts as improvement
+    protected double minDelta = 0;
+
+    // Loss at which to stop or a negative value for none
+    protected double target = -1;
+
+    // Evaluations without improvement before decaying the learning rate or 0 for no decay
+    protected int plateau = 0;
+
+    // Factor of the learning rate at each decay
+    protected double decay = 0.5;
+
+    // Copy of the network which the evaluator computes with and its outputs
+    protected final BackpropNetwork shadow;
+    protected final double[][] outputs;
+
+    // Copies of the weights, i.e., the double buffer, and their epochs
+    protected final double[][] weights = new double[2][];
+    protected final long[] marks = new long[2];
+
+    // Buffer waiting for the evaluator and buffer being evaluated or -1 if none
+    protected int pending = -1;
+    protected int evaluating = -1;
+
+    // Weights, loss and epoch of the best evaluation
+    protected final double[] best;
+    protected double bestLoss = Double.POSITIVE_INFINITY;
+    protected long bestEpoch = -1;
+
+    // Evaluations without improvement since the last improvement and since the last decay
+    protected int waits = 0;
+    protected int plateauWaits = 0;
+
+    // Number of evaluations and of decays the trainer has yet to apply
+    protected int evaluations = 0;
+    protected int decays = 0;
+
+    // True once training should stop and once closed
+    protected volatile boolean stopped = false;
+    protected boolean closed = false;
+
+    // Background evaluator
+    protected final Thread evaluator;
+
+    /**
+     * Runs a demo: trains iris for a fixed number of epochs and then with the controller, and compares
+     * the epochs, time and validation loss.
+     * @param args Command line arguments
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        final int maxEpochs = 5000;
+
+        double[][][] data = FloatPrecisionReport.getIris();
+
+        double[][][] split = split(data[0], data[1], 0.2, new Random(0));
+
+        int[] sizes = {split[0][0].length, 8, split[1][0].length};
+
+        for (boolean controlled : new boolean[] {false, true}) {
+            BackpropNetwork network = new BackpropNetwork(sizes, true, new Random(0));
+
+            network.setTrainingSet(split[0], split[1]);
+
+            network.setOptimizer(new Adam(0.01));
+
+            long start = System.nanoTime();
+
+            int epoch = 0;
+
+            try (ConvergenceController controller = new ConvergenceController(network, split[2], split[3], 10)) {
+                controller.setPatience(20);
+                controller.setMinDelta(1e-5);
+                controller.setPlateau(5, 0.5);
+
+                while (epoch < maxEpochs && (!controlled || !controller.update(epoch))) {
+                    network.train();
+
+                    epoch++;
+                }
+
+                if (controlled)
+                    controller.restore();
+
+                double ms = (System.nanoTime() - start) / 1e6;
+
+                System.out.printf("%-10s epochs %4d  %7.1f ms  validation loss %.5f  best epoch %d  rate %.5f\n",
+                        controlled ? "controlled" : "fixed", epoch, ms, controller.getLoss(network),
+                        controlled ? controller.getBestEpoch() : epoch, network.getRate());
+            }
+        }
+    }
+
+    /**
+     * Splits patterns at random into a training and a validation set.
+     * @param inputs   Inputs
+     * @param ideals   Ideals
+     * @param fraction Fraction of the patterns to hold out for validation
+     * @param ran      Random number generator
+     * @return Training inputs, training ideals, validation inputs and validation ideals
+     */
+    public static double[][][] split(double[][] inputs, double[][] ideals, double fraction, Random ran) {
+        int count = inputs.length;
+
+        int[] order = new int[count];
+
+        for (int k = 0; k < count; k++)
+            order[k] = k;
+
+        for (int k = count - 1; k > 0; k--) {
+            int j = ran.nextInt(k + 1);
+
+            int tmp = order[k];
+            order[k] = order[j];
+            order[j] = tmp;
+        }
+
+        int held = (int) Math.round(count * fraction);
+
+        double[][][] split = {
+                new double[count - held][], new double[count - held][], new double[held][], new double[held][]
+        };
+
+        for (int k = 0; k < count; k++) {
+            int set = k < held ? 2 : 0;
+
+            int row = k < held ? k : k - held;
+
+            split[set][row] = inputs[order[k]];
+            split[set + 1][row] = ideals[order[k]];
+        }
+
+        return split;
+    }
+
+    /**
+     * Constructor
+     * @param network  Network being trained
+     * @param inputs   Validation inputs
+     * @param ideals   Validation ideals
+     * @param interval Epochs between evaluations
+     */
+    public ConvergenceController(BackpropNetwork network, double[][] inputs, double[][] ideals, int interval) {
+        this.network = network;
+        this.inputs = inputs;
+        this.ideals = ideals;
+        this.interval = Math.max(1, interval);
+
+        shadow = new BackpropNetwork(network.sizes, network.bias);
+
+        shadow.setActivation(network.activation);
+
+        outputs = new double[inputs.length][ideals[0].length];
+
+        for (int k = 0; k < 2; k++)
+            weights[k] = new double[network.ws.length];
+
+        best = network.ws.clone();
+
+        evaluator = new Thread(this::evaluate, "convergence");
+
+        evaluator.setDaemon(true);
+
+        evaluator.start();
+    }
+
+    /**
+     * Sets the patience.
+     * @param patience Evaluations without improvement before stopping or 0 to never stop for that
+     */
+    public void setPatience(int patience) {
+        this.patience = patience;
+    }
+
+    /**
+     * Sets the minimum delta.
+     * @param minDelta Least decrease of the loss that counts as improvement
+     */
+    public void setMinDelta(double minDelta) {
+        this.minDelta = minDelta;
+    }
+
+    /**
+     * Sets the target loss, e.g., to stop once converged.
+     * @param target Loss at which to stop or a negative value for none
+     */
+    public void setTarget(double target) {
+        this.target = target;
+    }
+
+    /**
+     * Sets the plateau detection, which decays the learning rate. It should be less than the patience.
+     * @param plateau Evaluations without improvement before decaying the learning rate or 0 for no decay
+     * @param decay   Factor of the learning rate at each decay, e.g., 0.5
+     */
+    public void setPlateau(int plateau, double decay) {
+        this.plateau = plateau;
+        this.decay = decay;
+    }
+
+    /**
+     * Hands the weights to the evaluator every interval epochs and applies the decisions so far.
+     * Call it between epochs.
+     * @param epoch Epochs trained
+     * @return True if training should stop
+     */
+    public boolean update(long epoch) {
+        int count;
+
+        synchronized (this) {
+            count = decays;
+
+            decays = 0;
+        }
+
+        for (int k = 0; k < count; k++)
+            network.setRate(network.getRate() * decay);
+
+        if (stopped)
+            return true;
+
+        if (epoch % interval == 0)
+            submit(epoch);
+
+        return false;
+    }
+
+    /**
+     * Hands a copy of the weights to the evaluator without waiting for it.
+     * @param epoch Epochs trained
+     */
+    protected void submit(long epoch) {
+        int free;
+
+        // Take the buffer the evaluator isn't on; a pending one not yet taken is superseded
+        synchronized (this) {
+            free = evaluating == 0 ? 1 : 0;
+
+            if (pending == free)
+                pending = -1;
+        }
+
+        System.arraycopy(network.ws, 0, weights[free], 0, network.ws.length);
+
+        marks[free] = epoch;
+
+        synchronized (this) {
+            pending = free;
+
+            notifyAll();
+        }
+    }
+
+    /**
+     * Evaluates the weights handed over until closed.
+     */
+    protected void evaluate() {
+        while (true) {
+            int next;
+
+            synchronized (this) {
+                while (pending == -1 && !closed) {
+                    try {
+                        wait();
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+
+                if (pending == -1)
+                    return;
+
+                next = evaluating = pending;
+
+                pending = -1;
+            }
+
+            System.arraycopy(weights[next], 0, shadow.ws, 0, shadow.ws.length);
+
+            double loss = getLoss(shadow);
+
+            synchronized (this) {
+                judge(loss, weights[next], marks[next]);
+
+                evaluating = -1;
+
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Decides on an evaluation: keeps the weights if they improve, decays the learning rate on a
+     * plateau and stops when out of patience or at the target.
+     * @param loss    Validation loss
+     * @param ws      Weights evaluated
+     * @param epoch   Epochs trained
+     */
+    protected void judge(double loss, double[] ws, long epoch) {
+        evaluations++;
+
+        if (loss < bestLoss - minDelta) {
+            bestLoss = loss;
+            bestEpoch = epoch;
+
+            System.arraycopy(ws, 0, best, 0, best.length);
+
+            waits = plateauWaits = 0;
+        }
+        else {
+            waits++;
+            plateauWaits++;
+
+            if (plateau > 0 && plateauWaits >= plateau) {
+                decays++;
+
+                plateauWaits = 0;
+            }
+        }
+
+        if ((patience > 0 && waits >= patience) || loss <= target)
+            stopped = true;
+    }
+
+    /**
+     * Gets the validation loss of a network.
+     * @param network Network
+     * @return Mean square error on the validation patterns
+     */
+    public double getLoss(BackpropNetwork network) {
+        double[][] ys = network == shadow ? outputs : new double[inputs.length][ideals[0].length];
+
+        return getLoss(network, inputs, ideals, ys);
+    }
+
+    /**
+     * Gets the loss of a network on patterns.
+     * @param network Network
+     * @param inputs  Inputs
+     * @param ideals  Ideals
+     * @param outputs Buffers for the outputs by pattern
+     * @return Mean square error
+     */
+    public static double getLoss(BackpropNetwork network, double[][] inputs, double[][] ideals, double[][] outputs) {
+        network.compute(inputs, outputs);
+
+        double errorSum = 0;
+
+        for (int row = 0; row < inputs.length; row++) {
+            for (int o = 0; o < outputs[row].length; o++) {
+                double error = ideals[row][o] - outputs[row][o];
+
+                errorSum += error * error;
+            }
+        }
+
+        return errorSum / (inputs.length * ideals[0].length);
+    }
+
+    /**
+     * Waits for the evaluation in progress or pending, if any, and then puts the best weights evaluated
+     * back in the network. If nothing was evaluated, the network is left as it is. It stops waiting
+     * if the evaluator has died, e.g., of an exception in the loss, and restores the best so far.
+     * @throws InterruptedException
+     */
+    public synchronized void restore() throws InterruptedException {
+        // Bounded so a dead evaluator, which never notifies, is noticed
+        while ((pending != -1 || evaluating != -1) && evaluator.isAlive())
+            wait(100);
+
+        if (bestEpoch >= 0)
+            System.arraycopy(best, 0, network.ws, 0, best.length);
+    }
+
+    /**
+     * Tests whether training should stop.
+     * @return True if out of patience or at the target
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Gets the epoch of the best evaluation.
+     * @return Epochs trained or -1 if nothing was evaluated yet
+     */
+    public synchronized long getBestEpoch() {
+        return bestEpoch;
+    }
+
+    /**
+     * Gets the best validation loss.
+     * @return Loss or infinity if nothing was evaluated yet
+     */
+    public synchronized double getBestLoss() {
+        return bestLoss;
+    }
+
+    /**
+     * Gets the number of evaluations.
+     * @return Number of evaluations
+     */
+    public synchronized int getEvaluations() {
+        return evaluations;
+    }
+
+    /**
+     * Stops the evaluator once the pending evaluation, if any, is done. If interrupted while waiting,
+     * it returns with the interrupt flag set and the evaluator finishes on its own.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+
+            notifyAll();
+        }
+
+        try {
+            evaluator.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
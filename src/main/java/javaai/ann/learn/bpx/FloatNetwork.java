@@ -0,0 +1,190 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import javaai.util.Kernels;
+import javaai.util.Sigmoid;
+
+/**
+ * This class computes a trained network with its weights and activations stored as float, half the
+ * memory of double, while every weighted sum still adds up in double. It is for inference only:
+ * training stays in double in {@link BackpropNetwork}.
+ * <p>The saving is in storage, not speed. Summing in double, a pass is about as fast as the double
+ * network's at best: batched compute widens each tile to double once for the double kernel, since
+ * reading the floats straight into the kernel's sums converts them on every multiply and is about
+ * four times slower.</p>
+ * <p>Like the network's own compute, it keeps its buffers so passes allocate nothing; threads
+ * computing at the same time each need their own FloatNetwork.</p>
+ * @author Ron.Coleman
+ */
+public class FloatNetwork {
+    // Rows per batch of batched compute
+    public final static int COMPUTE_ROWS = BackpropNetwork.COMPUTE_ROWS;
+
+    // Weights of all layers with the same layout as the network's
+    protected final float[] ws;
+
+    // Number of inputs followed by the number of neurons in each layer
+    protected final int[] sizes;
+
+    // Start of each layer's weights
+    protected final int[] offsets;
+
+    // Weights per neuron in each layer, i.e., inputs plus bias
+    protected final int[] strides;
+
+    // True if each neuron has a bias weight
+    protected final boolean bias;
+
+    // Activation of every neuron
+    protected final Sigmoid activation;
+
+    // Inputs followed by the outputs of each layer, one row or a batch of rows
+    protected final float[][] outputs;
+
+    // Weighted sums of a layer in double
+    protected final double[] sums;
+
+    // Tiles of the outputs and weights widened to double by batched compute
+    protected final double[] wa, wb;
+
+    /**
+     * Constructor
+     * @param network Trained network, whose weights are copied
+     */
+    public FloatNetwork(BackpropNetwork network) {
+        sizes = network.sizes.clone();
+        offsets = network.offsets.clone();
+        strides = network.strides.clone();
+        bias = network.bias;
+        activation = network.activation;
+
+        ws = new float[network.ws.length];
+
+        for (int index = 0; index < ws.length; index++)
+            ws[index] = (float) network.ws[index];
+
+        outputs = new float[sizes.length][];
+
+        int widest = 0;
+
+        for (int layer = 0; layer < sizes.length; layer++) {
+            outputs[layer] = new float[COMPUTE_ROWS * sizes[layer]];
+
+            widest = Math.max(widest, sizes[layer]);
+        }
+
+        sums = new double[COMPUTE_ROWS * widest];
+
+        int depth = Math.min(Kernels.TILE_K, widest);
+
+        wa = new double[Math.min(Kernels.TILE_M, COMPUTE_ROWS) * depth];
+        wb = new double[Math.min(Kernels.TILE_N, widest) * depth];
+    }
+
+    /**
+     * Computes the outputs for inputs.
+     * @param inputs  Inputs
+     * @param outputs Buffer for the outputs
+     */
+    public void compute(double[] inputs, double[] outputs) {
+        float[] x = this.outputs[0];
+
+        for (int i = 0; i < inputs.length; i++)
+            x[i] = (float) inputs[i];
+
+        forward(1);
+
+        float[] y = this.outputs[sizes.length - 1];
+
+        for (int o = 0; o < outputs.length; o++)
+            outputs[o] = y[o];
+    }
+
+    /**
+     * Computes the outputs for many inputs in flat row-major buffers, a batch at a time.
+     * @param inputs  Inputs, rows x number of inputs
+     * @param outputs Buffer for the outputs, rows x number of outputs
+     * @param rows    Number of rows
+     */
+    public void compute(float[] inputs, float[] outputs, int rows) {
+        int width = sizes[0];
+
+        int outs = sizes[sizes.length - 1];
+
+        for (int start = 0; start < rows; start += COMPUTE_ROWS) {
+            int count = Math.min(COMPUTE_ROWS, rows - start);
+
+            System.arraycopy(inputs, start * width, this.outputs[0], 0, count * width);
+
+            forward(count);
+
+            System.arraycopy(this.outputs[sizes.length - 1], 0, outputs, start * outs, count * outs);
+        }
+    }
+
+    /**
+     * Feeds the rows in the first buffer forward through the layers.
+     * @param rows Number of rows
+     */
+    protected void forward(int rows) {
+        int layers = strides.length;
+
+        for (int layer = 0; layer < layers; layer++) {
+            float[] x = outputs[layer];
+
+            float[] y = outputs[layer + 1];
+
+            int fanIn = sizes[layer];
+
+            int neurons = sizes[layer + 1];
+
+            // The bias or "pseudo input" is 1.0
+            for (int neuron = 0; neuron < neurons; neuron++) {
+                double b = bias ? ws[offsets[layer] + neuron * strides[layer] + fanIn] : 0;
+
+                for (int row = 0; row < rows; row++)
+                    sums[row * neurons + neuron] = b;
+            }
+
+            // Compute the weighted sums in double
+            if (rows == 1)
+                Kernels.gemv(neurons, fanIn, ws, offsets[layer], strides[layer], x, 0, sums, 0);
+            else
+                Kernels.gemmNT(rows, neurons, fanIn, x, 0, fanIn, ws, offsets[layer], strides[layer], sums, 0, neurons,
+                        wa, wb);
+
+            // Store the activations as float
+            for (int k = 0; k < rows * neurons; k++)
+                y[k] = (float) activation.apply(sums[k]);
+        }
+    }
+
+    /**
+     * Gets the weights.
+     * @return Weights of all layers in one array, shared with this network
+     */
+    public float[] getWeights() {
+        return ws;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import javaai.ann.output.Ontology;
+import javaai.util.ColumnarMLDataSet;
+import javaai.util.Dataset;
+import javaai.util.Helper;
+import javaai.util.OneOfNEncoder;
+import org.encog.ml.data.MLDataPair;
+
+import java.util.Random;
+
+import static javaai.ann.learn.bpx.XorDeepNetwork.XOR_IDEALS;
+import static javaai.ann.learn.bpx.XorDeepNetwork.XOR_INPUTS;
+
+/**
+ * This class compares float inference against double for the XOR and iris baselines: the largest
+ * output difference and the misses of each, then the memory and throughput of a wide network.
+ * @author Ron.Coleman
+ */
+public class FloatPrecisionReport {
+    public final static int IRIS_EPOCHS = 500;
+
+    public final static int SCORE_ROWS = 4096;
+
+    /**
+     * Runs the report.
+     * @param args Command line arguments
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        // XOR
+        BackpropNetwork xor = new BackpropNetwork(new int[] {2, 4, 4, 1}, true, new Random(0));
+
+        xor.setTrainingSet(XOR_INPUTS, XOR_IDEALS);
+
+        for (int epoch = 0; epoch < XorDeepNetwork.NUM_EPOCHS; epoch++)
+            xor.train();
+
+        compare("xor", xor, XOR_INPUTS, XOR_IDEALS);
+
+        // Iris
+        double[][][] data = getIris();
+
+        double[][] inputs = data[0];
+        double[][] ideals = data[1];
+
+        BackpropNetwork iris = new BackpropNetwork(new int[] {inputs[0].length, 8, ideals[0].length}, true, new Random(0));
+
+        iris.setTrainingSet(inputs, ideals);
+
+        iris.setOptimizer(new Adam(0.01));
+
+        for (int epoch = 0; epoch < IRIS_EPOCHS; epoch++)
+            iris.train();
+
+        compare("iris", iris, inputs, ideals);
+
+        // Wide network for memory and speed
+        int[] sizes = {256, 1024, 1024, 10};
+
+        BackpropNetwork wide = new BackpropNetwork(sizes, true, new Random(0));
+
+        FloatNetwork narrow = new FloatNetwork(wide);
+
+        Random ran = new Random(1);
+
+        double[] xs = new double[SCORE_ROWS * sizes[0]];
+        float[] fs = new float[xs.length];
+
+        for (int k = 0; k < xs.length; k++)
+            fs[k] = (float) (xs[k] = ran.nextDouble());
+
+        double[] ys = new double[SCORE_ROWS * sizes[3]];
+        float[] gs = new float[ys.length];
+
+        Workspace work = wide.newWorkspace(BackpropNetwork.COMPUTE_ROWS);
+
+        double doubleMs = Double.MAX_VALUE;
+        double floatMs = Double.MAX_VALUE;
+
+        for (int trial = 0; trial < 3; trial++) {
+            long start = System.nanoTime();
+
+            wide.compute(work, xs, ys, SCORE_ROWS);
+
+            long middle = System.nanoTime();
+
+            narrow.compute(fs, gs, SCORE_ROWS);
+
+            long end = System.nanoTime();
+
+            doubleMs = Math.min(doubleMs, (middle - start) / 1e6);
+            floatMs = Math.min(floatMs, (end - middle) / 1e6);
+        }
+
+        double maxDiff = 0;
+
+        for (int k = 0; k < ys.length; k++)
+            maxDiff = Math.max(maxDiff, Math.abs(ys[k] - gs[k]));
+
+        System.out.printf("wide: weights double %d KB float %d KB, %d rows double %.1f ms float %.1f ms, max diff %.2e\n",
+                wide.getWeights().length * 8 / 1024, narrow.getWeights().length * 4 / 1024, SCORE_ROWS,
+                doubleMs, floatMs, maxDiff);
+    }
+
+    /**
+     * Gets the iris data with the measures normalized to [0, 1] for the sigmoid and the species one-of-n.
+     * @return Inputs followed by ideals
+     * @throws Exception
+     */
+    static double[][][] getIris() throws Exception {
+        Dataset dataset = Helper.loadDataset("data/iris.csv", Ontology.parsers);
+
+        int species = dataset.getColumn("Species");
+
+        ColumnarMLDataSet trainingSet = new ColumnarMLDataSet(dataset);
+
+        for (int col = 0; col < dataset.getColumnCount(); col++) {
+            if (dataset.isNumeric(col))
+                trainingSet.addInput(col, ColumnarMLDataSet.getNormalizer(dataset, col, 1, 0));
+        }
+
+        trainingSet.addIdeal(species, new OneOfNEncoder(dataset.getNominalCount(species), 1, 0));
+
+        double[][] inputs = new double[trainingSet.size()][];
+        double[][] ideals = new double[trainingSet.size()][];
+
+        int row = 0;
+
+        for (MLDataPair pair : trainingSet) {
+            inputs[row] = pair.getInputArray().clone();
+            ideals[row] = pair.getIdealArray().clone();
+
+            row++;
+        }
+
+        return new double[][][] {inputs, ideals};
+    }
+
+    /**
+     * Compares the float and double outputs of a network.
+     * @param name    Name of the baseline
+     * @param network Trained network
+     * @param inputs  Inputs
+     * @param ideals  Ideal outputs
+     */
+    static void compare(String name, BackpropNetwork network, double[][] inputs, double[][] ideals) {
+        FloatNetwork narrow = new FloatNetwork(network);
+
+        int outs = ideals[0].length;
+
+        double[] ys = new double[outs];
+        double[] gs = new double[outs];
+
+        double maxDiff = 0;
+
+        int doubleMisses = 0;
+        int floatMisses = 0;
+
+        for (int row = 0; row < inputs.length; row++) {
+            network.compute(inputs[row], ys);
+
+            narrow.compute(inputs[row], gs);
+
+            for (int o = 0; o < outs; o++)
+                maxDiff = Math.max(maxDiff, Math.abs(ys[o] - gs[o]));
+
+            if (getClass(ys) != getClass(ideals[row]))
+                doubleMisses++;
+
+            if (getClass(gs) != getClass(ideals[row]))
+                floatMisses++;
+        }
+
+        System.out.printf("%s: max diff %.2e, misses double %d float %d of %d\n",
+                name, maxDiff, doubleMisses, floatMisses, inputs.length);
+    }
+
+    /**
+     * Gets the class of outputs: the largest output or, with one output, whether it is over 0.5.
+     * @param outputs Outputs
+     * @return Class
+     */
+    static int getClass(double[] outputs) {
+        if (outputs.length == 1)
+            return outputs[0] > 0.5 ? 1 : 0;
+
+        int best = 0;
+
+        for (int o = 1; o < outputs.length; o++)
+            if (outputs[o] > outputs[best])
+                best = o;
+
+        return best;
+    }
+}
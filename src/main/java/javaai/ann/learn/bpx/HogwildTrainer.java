@@ -0,0 +1,175 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class trains a network with momentum by asynchronous, lock-free SGD, i.e., "Hogwild!".
+ * Each worker trains its share of the patterns one at a time with its own workspace and changes the
+ * shared weights and momentum directly, with no locks and no reduction. A worker may read a weight
+ * another worker is in the middle of changing or overwrite another's change; when the updates are
+ * small and spread over many weights, this costs little convergence and saves all the waiting.
+ * <p>Unlike {@link ParallelTrainer}, the results are not reproducible with more than one worker.</p>
+ * @see "https://arxiv.org/abs/1106.5730"
+ * @author Ron.Coleman
+ */
+public class HogwildTrainer {
+    // Network to train
+    protected final BackpropMomentumNetwork network;
+
+    // Number of workers
+    protected final int parallelism;
+
+    // Workspace of each worker
+    protected final Workspace[] workspaces;
+
+    // Pool running the workers
+    protected final ForkJoinPool pool;
+
+    /**
+     * Constructor
+     * @param network     Network with its training set
+     * @param parallelism Number of workers
+     */
+    public HogwildTrainer(BackpropMomentumNetwork network, int parallelism) {
+        this.network = network;
+        this.parallelism = Math.max(1, parallelism);
+
+        workspaces = new Workspace[this.parallelism];
+
+        for (int k = 0; k < workspaces.length; k++)
+            workspaces[k] = new Workspace(network.sizes);
+
+        pool = new ForkJoinPool(this.parallelism);
+    }
+
+    /**
+     * Runs one epoch of training. Each worker trains a contiguous share of the patterns so with one
+     * worker this is the same as the network's own online training.
+     * @return Training error as mean square error.
+     */
+    public double train() {
+        long started = network.metrics == null ? 0 : System.nanoTime();
+
+        final double[][] inputs = network.inputs;
+        final double[][] ideals = network.ideals;
+
+        ArrayList<ForkJoinTask<Double>> tasks = new ArrayList<>();
+
+        for (int k = 0; k < parallelism; k++) {
+            final Workspace work = workspaces[k];
+
+            final int from = (int) ((long) inputs.length * k / parallelism);
+            final int to = (int) ((long) inputs.length * (k + 1) / parallelism);
+
+            tasks.add(pool.submit(() -> {
+                double errorSum = 0;
+
+                for (int pattern = from; pattern < to; pattern++)
+                    errorSum += network.train(work, inputs[pattern], ideals[pattern]);
+
+                return errorSum;
+            }));
+        }
+
+        double errorSum = 0;
+
+        for (ForkJoinTask<Double> task : tasks)
+            errorSum += task.join();
+
+        double mse = errorSum / (inputs.length * network.sizes[network.sizes.length - 1]);
+
+        if (network.metrics != null)
+            network.metrics.epoch(inputs.length, mse, System.nanoTime() - started);
+
+        return mse;
+    }
+
+    /**
+     * Stops the workers.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Compares convergence and throughput of asynchronous training against synchronous data-parallel
+     * training of the same network on the same data.
+     * @param args Command line arguments: optional number of workers and epochs
+     */
+    public static void main(String[] args) {
+        int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int epochs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        int[] sizes = {64, 128, 8};
+
+        double[][][] data = ParallelTrainer.getSyntheticData(4096, sizes[0], sizes[2], new Random(0));
+
+        BackpropMomentumNetwork async = new BackpropMomentumNetwork(sizes, new Random(1));
+        async.setTrainingSet(data[0], data[1]);
+
+        BackpropMomentumNetwork sync = new BackpropMomentumNetwork(sizes, new Random(1));
+        sync.setTrainingSet(data[0], data[1]);
+
+        HogwildTrainer hogwild = new HogwildTrainer(async, parallelism);
+
+        ParallelTrainer parallel = new ParallelTrainer(sync, 16, parallelism);
+
+        System.out.printf("workers=%d cores=%d\n", parallelism, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%5s %14s %10s %14s %10s\n", "epoch", "hogwild mse", "ms", "parallel mse", "ms");
+
+        double asyncTime = 0;
+        double syncTime = 0;
+
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            long start = System.nanoTime();
+
+            double asyncError = hogwild.train();
+
+            long middle = System.nanoTime();
+
+            double syncError = parallel.train();
+
+            long end = System.nanoTime();
+
+            double asyncMs = (middle - start) / 1e6;
+            double syncMs = (end - middle) / 1e6;
+
+            asyncTime += asyncMs;
+            syncTime += syncMs;
+
+            System.out.printf("%5d %14.8f %10.2f %14.8f %10.2f\n", epoch, asyncError, asyncMs, syncError, syncMs);
+        }
+
+        System.out.printf("patterns/s: hogwild %.0f parallel %.0f\n",
+                epochs * data[0].length / asyncTime * 1000,
+                epochs * data[0].length / syncTime * 1000);
+
+        hogwild.shutdown();
+        parallel.shutdown();
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import javaai.util.Kernels;
+import javaai.util.Sigmoid;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * This class computes a network whose weights are a read-only buffer over a memory-mapped snapshot
+ * instead of an array. Nothing is copied at load, so a large model is ready as soon as its header
+ * is read, and processes mapping the same snapshot share one copy of the weights in the page cache.
+ * It is for inference only: see {@link Snapshot}.
+ * <p>Like the network's own compute, it keeps its buffers so passes allocate nothing; threads
+ * computing at the same time each need their own MappedNetwork, which may map the same snapshot.</p>
+ * @author Ron.Coleman
+ */
+public class MappedNetwork {
+    // Rows per batch of batched compute
+    public final static int COMPUTE_ROWS = BackpropNetwork.COMPUTE_ROWS;
+
+    // Weights of all layers with the same layout as the network's
+    protected final DoubleBuffer ws;
+
+    // Number of inputs followed by the number of neurons in each layer
+    protected final int[] sizes;
+
+    // Start of each layer's weights
+    protected final int[] offsets;
+
+    // Weights per neuron in each layer, i.e., inputs plus bias
+    protected final int[] strides;
+
+    // True if each neuron has a bias weight
+    protected final boolean bias;
+
+    // Activation of every neuron
+    protected final Sigmoid activation;
+
+    // Inputs followed by the outputs of each layer, one row or a batch of rows
+    protected double[][] outputs;
+
+    // Rows the outputs have room for
+    protected int capacity = 0;
+
+    // View of the weights whose position batched compute moves to copy out tiles
+    protected final DoubleBuffer cursor;
+
+    // Tile of the weights copied out by batched compute or null until first needed
+    protected double[] wb = null;
+
+    /**
+     * Constructor
+     * @param sizes      Number of inputs followed by the number of neurons in each layer
+     * @param bias       True if each neuron has a bias weight
+     * @param activation Activation of every neuron
+     * @param ws         Weights of all layers in the network's layout
+     */
+    MappedNetwork(int[] sizes, boolean bias, Sigmoid activation, DoubleBuffer ws) {
+        this.sizes = sizes.clone();
+        this.bias = bias;
+        this.activation = activation;
+        this.ws = ws;
+
+        this.cursor = ws.duplicate();
+
+        offsets = new int[sizes.length - 1];
+        strides = new int[sizes.length - 1];
+
+        BackpropNetwork.layout(sizes, bias, offsets, strides);
+
+        allocate(1);
+    }
+
+    /**
+     * Makes room in the outputs for a number of rows. Single rows need little, so a model used one
+     * row at a time never allocates the batch buffers.
+     * @param rows Number of rows
+     */
+    protected void allocate(int rows) {
+        if (rows <= capacity)
+            return;
+
+        outputs = new double[sizes.length][];
+
+        int widest = 0;
+
+        for (int layer = 0; layer < sizes.length; layer++) {
+            outputs[layer] = new double[rows * sizes[layer]];
+
+            widest = Math.max(widest, sizes[layer]);
+        }
+
+        if (rows > 1 && wb == null)
+            wb = new double[Math.min(Kernels.TILE_N, widest) * Math.min(Kernels.TILE_K, widest)];
+
+        capacity = rows;
+    }
+
+    /**
+     * Computes the outputs for inputs.
+     * @param inputs  Inputs
+     * @param outputs Buffer for the outputs
+     */
+    public void compute(double[] inputs, double[] outputs) {
+        System.arraycopy(inputs, 0, this.outputs[0], 0, sizes[0]);
+
+        forward(1);
+
+        System.arraycopy(this.outputs[sizes.length - 1], 0, outputs, 0, outputs.length);
+    }
+
+    /**
+     * Computes the outputs for many inputs in flat row-major buffers, a batch at a time.
+     * @param inputs  Inputs, rows x number of inputs
+     * @param outputs Buffer for the outputs, rows x number of outputs
+     * @param rows    Number of rows
+     */
+    public void compute(double[] inputs, double[] outputs, int rows) {
+        int width = sizes[0];
+
+        int outs = sizes[sizes.length - 1];
+
+        allocate(Math.min(COMPUTE_ROWS, rows));
+
+        for (int start = 0; start < rows; start += COMPUTE_ROWS) {
+            int count = Math.min(COMPUTE_ROWS, rows - start);
+
+            System.arraycopy(inputs, start * width, this.outputs[0], 0, count * width);
+
+            forward(count);
+
+            System.arraycopy(this.outputs[sizes.length - 1], 0, outputs, start * outs, count * outs);
+        }
+    }
+
+    /**
+     * Feeds the rows in the first buffer forward through the layers.
+     * @param rows Number of rows
+     */
+    protected void forward(int rows) {
+        int layers = strides.length;
+
+        for (int layer = 0; layer < layers; layer++) {
+            double[] x = outputs[layer];
+
+            double[] y = outputs[layer + 1];
+
+            int fanIn = sizes[layer];
+
+            int neurons = sizes[layer + 1];
+
+            // The bias or "pseudo input" is 1.0
+            for (int neuron = 0; neuron < neurons; neuron++) {
+                double b = bias ? ws.get(offsets[layer] + neuron * strides[layer] + fanIn) : 0;
+
+                for (int row = 0; row < rows; row++)
+                    y[row * neurons + neuron] = b;
+            }
+
+            // Compute the weighted sums
+            if (rows == 1)
+                Kernels.gemv(neurons, fanIn, ws, offsets[layer], strides[layer], x, 0, y, 0);
+            else
+                Kernels.gemmNT(rows, neurons, fanIn, x, 0, fanIn, cursor, offsets[layer], strides[layer], y, 0, neurons,
+                        wb);
+
+            for (int k = 0; k < rows * neurons; k++)
+                y[k] = activation.apply(y[k]);
+        }
+    }
+
+    /**
+     * Gets the layer sizes.
+     * @return Number of inputs followed by the number of neurons in each layer
+     */
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /**
+     * Gets the weights.
+     * @return Read-only weights of all layers, shared with this network and the mapped file
+     */
+    public DoubleBuffer getWeights() {
+        return ws;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+/**
+ * This class implements gradient descent with momentum the way {@link BackpropMomentumNetwork} does:
+ * each weight moves by the learning rate times its gradient plus a fraction of its previous change
+ * by the gradient.
+ * @see "https://jamesmccaffrey.wordpress.com/2017/06/06/neural-network-momentum/"
+ * @author Ron.Coleman
+ */
+public class Momentum implements Optimizer {
+    // Learning rate
+    protected double rate;
+
+    // Fraction of the previous change
+    protected final double momentum;
+
+    // Previous change by the gradient, one per weight
+    protected double[] dws = new double[0];
+
+    /**
+     * Constructor
+     * @param rate     Learning rate
+     * @param momentum Fraction of the previous change
+     */
+    public Momentum(double rate, double momentum) {
+        this.rate = rate;
+        this.momentum = momentum;
+    }
+
+    /**
+     * Clears the previous changes and sizes them for a number of weights.
+     * @param count Number of weights
+     */
+    @Override
+    public void reset(int count) {
+        dws = new double[count];
+    }
+
+    /**
+     * Moves each weight by the rate times its gradient plus momentum times its previous change and
+     * clears the gradient.
+     * @param ws    Weights
+     * @param gs    Gradient summed over the batch
+     * @param scale Factor of the gradient
+     */
+    @Override
+    public void step(double[] ws, double[] gs, double scale) {
+        double r = rate * scale;
+
+        for (int index = 0; index < ws.length; index++) {
+            double dw = r * gs[index];
+
+            ws[index] += dw + dws[index] * momentum;
+
+            dws[index] = dw;
+
+            gs[index] = 0;
+        }
+    }
+
+    /**
+     * Gets the learning rate.
+     * @return Learning rate
+     */
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the learning rate.
+     * @param rate Learning rate
+     */
+    @Override
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Gets the number of values in the state, the previous changes.
+     * @return Number of weights
+     */
+    @Override
+    public int getStateSize() {
+        return dws.length;
+    }
+
+    /**
+     * Copies the previous changes out, one per weight.
+     * @param state  Destination
+     * @param offset Offset in the destination
+     */
+    @Override
+    public void getState(double[] state, int offset) {
+        System.arraycopy(dws, 0, state, offset, dws.length);
+    }
+
+    /**
+     * Copies the previous changes in, one per weight.
+     * @param state  Source
+     * @param offset Offset in the source
+     */
+    @Override
+    public void setState(double[] state, int offset) {
+        System.arraycopy(state, offset, dws, 0, dws.length);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+/**
+ * This class implements Nesterov accelerated gradient. The velocity accumulates the changes by the
+ * gradient and each weight moves by the gradient plus the velocity carried one step ahead, which is
+ * the same as taking the gradient at the look-ahead point but needs no second pass.
+ * @see "http://proceedings.mlr.press/v28/sutskever13.html"
+ * @author Ron.Coleman
+ */
+public class Nesterov implements Optimizer {
+    // Learning rate
+    protected double rate;
+
+    // Decay of the velocity
+    protected final double momentum;
+
+    // Velocity, one per weight
+    protected double[] vs = new double[0];
+
+    /**
+     * Constructor
+     * @param rate     Learning rate
+     * @param momentum Decay of the velocity
+     */
+    public Nesterov(double rate, double momentum) {
+        this.rate = rate;
+        this.momentum = momentum;
+    }
+
+    /**
+     * Clears the velocities and sizes them for a number of weights.
+     * @param count Number of weights
+     */
+    @Override
+    public void reset(int count) {
+        vs = new double[count];
+    }
+
+    /**
+     * Updates each velocity and moves its weight by the velocity looked ahead one step, then clears the
+     * gradient.
+     * @param ws    Weights
+     * @param gs    Gradient summed over the batch
+     * @param scale Factor of the gradient
+     */
+    @Override
+    public void step(double[] ws, double[] gs, double scale) {
+        double r = rate * scale;
+
+        for (int index = 0; index < ws.length; index++) {
+            double dw = r * gs[index];
+
+            double v = momentum * vs[index] + dw;
+
+            ws[index] += momentum * v + dw;
+
+            vs[index] = v;
+
+            gs[index] = 0;
+        }
+    }
+
+    /**
+     * Gets the learning rate.
+     * @return Learning rate
+     */
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the learning rate.
+     * @param rate Learning rate
+     */
+    @Override
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Gets the number of values in the state, the velocities.
+     * @return Number of weights
+     */
+    @Override
+    public int getStateSize() {
+        return vs.length;
+    }
+
+    /**
+     * Copies the velocities out, one per weight.
+     * @param state  Destination
+     * @param offset Offset in the destination
+     */
+    @Override
+    public void getState(double[] state, int offset) {
+        System.arraycopy(vs, 0, state, offset, vs.length);
+    }
+
+    /**
+     * Copies the velocities in, one per weight.
+     * @param state  Source
+     * @param offset Offset in the source
+     */
+    @Override
+    public void setState(double[] state, int offset) {
+        System.arraycopy(state, offset, vs, 0, vs.length);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+/**
+ * This interface changes the weights of a network by the gradient of a mini-batch.
+ * <p>Weights and gradient are flat arrays with the same layout. The gradient is the one backpropagation
+ * sums, i.e., delta times input, which points downhill: the weights move along it, not against it. Each
+ * step is one fused pass over the arrays which changes the weights, updates the optimizer's own state
+ * and clears the gradient for the next batch, allocating nothing.</p>
+ * @author Ron.Coleman
+ */
+public interface Optimizer {
+    /**
+     * Clears the state, e.g., velocities and step count, and sizes it for a number of weights.
+     * @param count Number of weights
+     */
+    void reset(int count);
+
+    /**
+     * Changes the weights by a gradient and clears the gradient.
+     * @param ws    Weights
+     * @param gs    Gradient summed over the batch
+     * @param scale Factor of the gradient, e.g., 1 / rows to average over the batch
+     */
+    void step(double[] ws, double[] gs, double scale);
+
+    /**
+     * Gets the learning rate.
+     * @return Learning rate
+     */
+    double getRate();
+
+    /**
+     * Sets the learning rate, e.g., to decay it when the loss stops improving.
+     * @param rate Learning rate
+     */
+    void setRate(double rate);
+
+    /**
+     * Gets the number of values in the state, e.g., to checkpoint it.
+     * @return Number of values, 0 if the optimizer has no state
+     */
+    default int getStateSize() {
+        return 0;
+    }
+
+    /**
+     * Copies the state out.
+     * @param state  Destination
+     * @param offset Offset in the destination
+     */
+    default void getState(double[] state, int offset) {
+    }
+
+    /**
+     * Copies the state in, e.g., to resume from a checkpoint.
+     * @param state  Source
+     * @param offset Offset in the source
+     */
+    default void setState(double[] state, int offset) {
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.util.Random;
+
+import static javaai.ann.learn.bpx.XorDeepNetwork.XOR_IDEALS;
+import static javaai.ann.learn.bpx.XorDeepNetwork.XOR_INPUTS;
+
+/**
+ * This class trains the same deep XOR network with each optimizer and reports how many epochs each
+ * takes to reach a target error.
+ * @author Ron.Coleman
+ */
+public class OptimizerComparison {
+    public final static int NUM_EPOCHS = 10000;
+
+    public final static double TARGET_ERROR = 0.001;
+
+    public static void main(String[] args) {
+        Optimizer[] optimizers = {
+                new Sgd(BackpropNetwork.LEARNING_RATE),
+                new Momentum(BackpropNetwork.LEARNING_RATE, BackpropMomentumNetwork.MOMENTUM),
+                new Nesterov(BackpropNetwork.LEARNING_RATE, 0.9),
+                new RmsProp(0.01),
+                new Adam(0.01)
+        };
+
+        System.out.printf("%-10s %8s %10s\n", "optimizer", "epochs", "mse");
+
+        for (Optimizer optimizer : optimizers) {
+            BackpropNetwork bp = new BackpropNetwork(new int[] {2, 4, 4, 1}, true, new Random(0));
+
+            bp.setTrainingSet(XOR_INPUTS, XOR_IDEALS);
+
+            bp.setOptimizer(optimizer);
+
+            int epoch = 0;
+
+            double error = Double.MAX_VALUE;
+
+            while (epoch < NUM_EPOCHS && error > TARGET_ERROR) {
+                error = bp.train();
+
+                epoch++;
+            }
+
+            String name = optimizer.getClass().getSimpleName();
+
+            if (error > TARGET_ERROR)
+                System.out.printf("%-10s %8s %10.6f\n", name, ">" + NUM_EPOCHS, error);
+            else
+                System.out.printf("%-10s %8d %10.6f\n", name, epoch, error);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class trains a network on several cores by data parallelism. Each mini-batch is split into one
+ * shard per worker; each worker computes the gradient of its shard in its own workspace; the gradients
+ * are summed pairwise in a fixed tree and the sum applied to the weights once.
+ * <p>The shards and the order of the sums depend only on the number of workers, not on which thread
+ * runs what or when, so training is bit-for-bit reproducible for a given number of workers.</p>
+ * @author Ron.Coleman
+ */
+public class ParallelTrainer {
+    // Network to train
+    protected final BackpropNetwork network;
+
+    // Patterns per weight update
+    protected final int batchSize;
+
+    // Number of shards per batch
+    protected final int parallelism;
+
+    // Workspace of each shard
+    protected final Workspace[] workspaces;
+
+    // Pool running the shards
+    protected final ForkJoinPool pool;
+
+    /**
+     * Constructor
+     * @param network     Network with its training set
+     * @param batchSize   Patterns per weight update
+     * @param parallelism Number of workers
+     */
+    public ParallelTrainer(BackpropNetwork network, int batchSize, int parallelism) {
+        this.network = network;
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, Math.min(parallelism, this.batchSize));
+
+        int rows = (this.batchSize + this.parallelism - 1) / this.parallelism;
+
+        workspaces = new Workspace[this.parallelism];
+
+        for (int k = 0; k < workspaces.length; k++)
+            workspaces[k] = new Workspace(network.sizes, rows, network.ws.length);
+
+        pool = new ForkJoinPool(this.parallelism);
+    }
+
+    /**
+     * Runs one epoch of training.
+     * @return Training error as mean square error.
+     */
+    public double train() {
+        long started = network.metrics == null ? 0 : System.nanoTime();
+
+        double[][] inputs = network.inputs;
+
+        double errorSum = 0;
+
+        for (int start = 0; start < inputs.length; start += batchSize) {
+            int rows = Math.min(batchSize, inputs.length - start);
+
+            errorSum += train(start, rows);
+        }
+
+        double mse = errorSum / (inputs.length * network.sizes[network.sizes.length - 1]);
+
+        if (network.metrics != null)
+            network.metrics.epoch(inputs.length, mse, System.nanoTime() - started);
+
+        return mse;
+    }
+
+    /**
+     * Trains one mini-batch.
+     * @param start First pattern
+     * @param rows  Number of patterns
+     * @return Square error summed over the patterns and outputs
+     */
+    protected double train(int start, int rows) {
+        // Split the batch into equal shards, the last ones possibly smaller or empty
+        int shard = (rows + parallelism - 1) / parallelism;
+
+        ArrayList<ForkJoinTask<Double>> tasks = new ArrayList<>();
+
+        for (int k = 0; k < parallelism; k++) {
+            final Workspace work = workspaces[k];
+
+            final int from = start + k * shard;
+            final int count = Math.max(0, Math.min(shard, start + rows - from));
+
+            tasks.add(pool.submit(() -> count == 0 ? 0.0 : network.train(work, from, count)));
+        }
+
+        // Join in shard order so the error sums the same way every time
+        double errorSum = 0;
+
+        for (ForkJoinTask<Double> task : tasks)
+            errorSum += task.join();
+
+        reduce();
+
+        if (network.metrics != null && start + rows == network.inputs.length)
+            network.measure(workspaces[0], rows);
+
+        network.apply(workspaces[0], rows);
+
+        return errorSum;
+    }
+
+    /**
+     * Sums the gradients of the shards into the first one pairwise: 1 into 0, 3 into 2, ..., then
+     * 2 into 0, ..., so each level's sums run in parallel and always in the same order.
+     */
+    protected void reduce() {
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+
+        for (int stride = 1; stride < parallelism; stride *= 2) {
+            tasks.clear();
+
+            for (int k = 0; k + stride < parallelism; k += 2 * stride) {
+                final double[] to = workspaces[k].gradients;
+                final double[] from = workspaces[k + stride].gradients;
+
+                tasks.add(pool.submit(() -> {
+                    for (int index = 0; index < to.length; index++) {
+                        to[index] += from[index];
+
+                        from[index] = 0;
+                    }
+                }));
+            }
+
+            for (ForkJoinTask<?> task : tasks)
+                task.join();
+        }
+    }
+
+    /**
+     * Stops the workers.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Makes a synthetic classification problem: each pattern's ideal is one-of-n of the largest
+     * output of a fixed random linear map of its inputs.
+     * @param patterns Number of patterns
+     * @param inputs   Number of inputs
+     * @param outputs  Number of outputs
+     * @param ran      Random number generator
+     * @return Inputs followed by ideals
+     */
+    static double[][][] getSyntheticData(int patterns, int inputs, int outputs, Random ran) {
+        double[][] map = new double[outputs][inputs];
+
+        for (double[] row : map)
+            for (int i = 0; i < inputs; i++)
+                row[i] = ran.nextGaussian();
+
+        double[][] xs = new double[patterns][inputs];
+        double[][] ts = new double[patterns][outputs];
+
+        for (int p = 0; p < patterns; p++) {
+            for (int i = 0; i < inputs; i++)
+                xs[p][i] = ran.nextDouble();
+
+            int best = 0;
+            double max = -Double.MAX_VALUE;
+
+            for (int o = 0; o < outputs; o++) {
+                double sum = 0;
+
+                for (int i = 0; i < inputs; i++)
+                    sum += map[o][i] * (xs[p][i] - 0.5);
+
+                if (sum > max) {
+                    max = sum;
+                    best = o;
+                }
+            }
+
+            ts[p][best] = 1;
+        }
+
+        return new double[][][] {xs, ts};
+    }
+
+    /**
+     * Trains the same network on 1, 2 and 4 workers, twice each to show the results repeat.
+     * @param args Command line arguments: optional number of epochs
+     */
+    public static void main(String[] args) {
+        int epochs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        double[][][] data = getSyntheticData(4096, 64, 8, new Random(0));
+
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+
+        for (int parallelism : new int[] {1, 2, 4}) {
+            for (int trial = 0; trial < 2; trial++) {
+                BackpropNetwork network = new BackpropNetwork(new int[] {64, 128, 8}, true, new Random(1));
+
+                network.setTrainingSet(data[0], data[1]);
+
+                ParallelTrainer trainer = new ParallelTrainer(network, 64, parallelism);
+
+                double error = 0;
+
+                long start = System.nanoTime();
+
+                for (int epoch = 0; epoch < epochs; epoch++)
+                    error = trainer.train();
+
+                double ms = (System.nanoTime() - start) / 1e6 / epochs;
+
+                trainer.shutdown();
+
+                System.out.printf("workers=%d trial=%d %8.2f ms/epoch error=%.17f\n", parallelism, trial, ms, error);
+            }
+        }
+    }
+}
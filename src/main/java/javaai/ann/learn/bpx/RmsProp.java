@@ -0,0 +1,141 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+/**
+ * This class implements RMSProp: each weight's step is divided by the root of a moving average of
+ * its squared gradient, so weights with steep gradients take smaller steps and flat ones larger.
+ * @see "http://www.cs.toronto.edu/~tijmen/csc321/slides/lecture_slides_lec6.pdf"
+ * @author Ron.Coleman
+ */
+public class RmsProp implements Optimizer {
+    // Learning rate
+    protected double rate;
+
+    // Decay of the moving average
+    protected final double decay;
+
+    // Added to the root to avoid dividing by zero
+    protected final double epsilon;
+
+    // Moving average of the squared gradient, one per weight
+    protected double[] ss = new double[0];
+
+    /**
+     * Constructor
+     * @param rate    Learning rate, e.g., 0.001
+     * @param decay   Decay of the moving average, e.g., 0.9
+     * @param epsilon Added to the root, e.g., 1e-8
+     */
+    public RmsProp(double rate, double decay, double epsilon) {
+        this.rate = rate;
+        this.decay = decay;
+        this.epsilon = epsilon;
+    }
+
+    /**
+     * Constructor with the usual decay and epsilon.
+     * @param rate Learning rate
+     */
+    public RmsProp(double rate) {
+        this(rate, 0.9, 1e-8);
+    }
+
+    /**
+     * Clears the moving averages and sizes them for a number of weights.
+     * @param count Number of weights
+     */
+    @Override
+    public void reset(int count) {
+        ss = new double[count];
+    }
+
+    /**
+     * Updates each moving average of the squared gradient and moves its weight by the rate times the
+     * gradient over its root, then clears the gradient.
+     * @param ws    Weights
+     * @param gs    Gradient summed over the batch
+     * @param scale Factor of the gradient
+     */
+    @Override
+    public void step(double[] ws, double[] gs, double scale) {
+        for (int index = 0; index < ws.length; index++) {
+            double g = scale * gs[index];
+
+            double s = decay * ss[index] + (1 - decay) * g * g;
+
+            ws[index] += rate * g / (Math.sqrt(s) + epsilon);
+
+            ss[index] = s;
+
+            gs[index] = 0;
+        }
+    }
+
+    /**
+     * Gets the learning rate.
+     * @return Learning rate
+     */
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the learning rate.
+     * @param rate Learning rate
+     */
+    @Override
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Gets the number of values in the state, the moving averages.
+     * @return Number of weights
+     */
+    @Override
+    public int getStateSize() {
+        return ss.length;
+    }
+
+    /**
+     * Copies the moving averages of the squared gradient out, one per weight.
+     * @param state  Destination
+     * @param offset Offset in the destination
+     */
+    @Override
+    public void getState(double[] state, int offset) {
+        System.arraycopy(ss, 0, state, offset, ss.length);
+    }
+
+    /**
+     * Copies the moving averages of the squared gradient in, one per weight.
+     * @param state  Source
+     * @param offset Offset in the source
+     */
+    @Override
+    public void setState(double[] state, int offset) {
+        System.arraycopy(state, offset, ss, 0, ss.length);
+    }
+}
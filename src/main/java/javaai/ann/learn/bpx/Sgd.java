@@ -0,0 +1,84 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+/**
+ * This class implements plain stochastic gradient descent: each weight moves by the learning rate
+ * times its gradient.
+ * @author Ron.Coleman
+ */
+public class Sgd implements Optimizer {
+    // Learning rate
+    protected double rate;
+
+    /**
+     * Constructor
+     * @param rate Learning rate
+     */
+    public Sgd(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Has nothing to clear: plain gradient descent keeps no state.
+     * @param count Number of weights
+     */
+    @Override
+    public void reset(int count) {
+    }
+
+    /**
+     * Moves each weight by the rate times its gradient and clears the gradient.
+     * @param ws    Weights
+     * @param gs    Gradient summed over the batch
+     * @param scale Factor of the gradient
+     */
+    @Override
+    public void step(double[] ws, double[] gs, double scale) {
+        double r = rate * scale;
+
+        for (int index = 0; index < ws.length; index++) {
+            ws[index] += r * gs[index];
+
+            gs[index] = 0;
+        }
+    }
+
+    /**
+     * Gets the learning rate.
+     * @return Learning rate
+     */
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the learning rate.
+     * @param rate Learning rate
+     */
+    @Override
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import javaai.util.Activation;
+import javaai.util.Sigmoid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class writes and loads binary snapshots of bpx networks.
+ * <p>A snapshot holds, in little-endian order, a header -- magic number, version, header length,
+ * bias flag, sigmoid mode and tolerance, number of layers, the layer sizes and the number of
+ * weights -- padded to eight bytes, followed by the flat weight array in the network's own layout.
+ * Since the weights start on a double boundary in native order on x86, a loader can map the file
+ * and use the weights where they lie. From version 2 a trailer follows the weights: the epoch, the
+ * number of values of training state, e.g., the optimizer's, and the state, so a snapshot is also a
+ * checkpoint to resume from with {@link #restore}.</p>
+ * <p>{@link #map} does that for inference: the weights of the {@link MappedNetwork} are a read-only
+ * view of the mapping, so loading costs the header no matter the model size and the pages are
+ * shared by every process that maps the same file. {@link #read} copies the weights into a new
+ * network to train further.</p>
+ * @author Ron.Coleman
+ */
+public class Snapshot {
+    // Identifies a snapshot file
+    public final static int MAGIC = 0x50584250;
+
+    // Format version
+    public final static int VERSION = 2;
+
+    /**
+     * This class holds the header of a snapshot.
+     */
+    static class Header {
+        // Format version
+        int version;
+
+        // Number of inputs followed by the number of neurons in each layer
+        int[] sizes;
+
+        // True if each neuron has a bias weight
+        boolean bias;
+
+        // Activation of every neuron
+        Sigmoid activation;
+
+        // Position of the weights in the file
+        int length;
+
+        // Number of weights
+        int count;
+    }
+
+    /**
+     * Runs a demo: writes a wide network, then times copying it back against mapping it.
+     * @param args Command line arguments
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        BackpropNetwork network = new BackpropNetwork(new int[] {256, 1024, 1024, 10}, true, new Random(0));
+
+        Path path = Files.createTempFile("bpx", ".snapshot");
+
+        try {
+            write(network, path.toString());
+
+            long start = System.nanoTime();
+
+            BackpropNetwork copy = read(path.toString());
+
+            long middle = System.nanoTime();
+
+            MappedNetwork mapped = map(path.toString());
+
+            long end = System.nanoTime();
+
+            double[] inputs = new double[256];
+
+            Random ran = new Random(1);
+
+            for (int k = 0; k < inputs.length; k++)
+                inputs[k] = ran.nextDouble();
+
+            double[] expected = new double[10];
+            double[] copied = new double[10];
+            double[] actual = new double[10];
+
+            network.compute(inputs, expected);
+
+            copy.compute(inputs, copied);
+
+            mapped.compute(inputs, actual);
+
+            System.out.printf("snapshot %d KB: read %.2f ms map %.2f ms, same outputs copied %b mapped %b\n",
+                    Files.size(path) / 1024, (middle - start) / 1e6, (end - middle) / 1e6,
+                    Arrays.equals(expected, copied), Arrays.equals(expected, actual));
+        }
+        finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Writes a snapshot of a network. The file is written next to the path and moved into place, so
+     * readers never see a partial snapshot.
+     * @param network Network
+     * @param path    Snapshot file path
+     * @throws IOException
+     */
+    public static void write(BackpropNetwork network, String path) throws IOException {
+        write(network, network.ws, null, 0, path);
+    }
+
+    /**
+     * Writes a snapshot with given weights and training state, e.g., copies taken at a checkpoint.
+     * @param network Network with the topology and sigmoid
+     * @param ws      Weights in the network's layout
+     * @param state   Training state besides the weights or null if none
+     * @param epoch   Epochs trained
+     * @param path    Snapshot file path
+     * @throws IOException
+     */
+    static void write(BackpropNetwork network, double[] ws, double[] state, long epoch, String path) throws IOException {
+        Path snapshot = Paths.get(path);
+
+        Path tmp = Paths.get(path + ".tmp");
+
+        int[] sizes = network.sizes;
+
+        int length = getLength(sizes.length);
+
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(length);
+        header.putInt(network.bias ? 1 : 0);
+        header.putInt(network.activation.getMode().ordinal());
+        header.putInt(sizes.length);
+        header.putDouble(network.activation.getTolerance());
+
+        for (int size : sizes)
+            header.putInt(size);
+
+        header.putInt(ws.length);
+
+        header.position(length);
+
+        try {
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                write(channel, header);
+
+                ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+                write(channel, bytes, ws);
+
+                // Trailer with eight bytes for the state count to keep the state aligned
+                bytes.putLong(epoch);
+                bytes.putLong(state == null ? 0 : state.length);
+
+                write(channel, bytes);
+
+                if (state != null)
+                    write(channel, bytes, state);
+            }
+
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads a snapshot into a new network, copying the weights, e.g., to train it further.
+     * @param path Snapshot file path
+     * @return Network
+     * @throws Exception if the file is not a snapshot of this version
+     */
+    public static BackpropNetwork read(String path) throws Exception {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            Header header = readHeader(path, channel);
+
+            BackpropNetwork network = new BackpropNetwork(header.sizes, header.bias);
+
+            network.setActivation(header.activation);
+
+            getWeights(channel, header).get(network.ws);
+
+            return network;
+        }
+    }
+
+    /**
+     * Restores the weights and training state of a network from a snapshot, e.g., to resume training
+     * from a checkpoint. The network must have the snapshot's topology and the optimizer, if any,
+     * that wrote it.
+     * @param network Network
+     * @param path    Snapshot file path
+     * @return Epochs trained when the snapshot was taken
+     * @throws Exception if the file is not a snapshot of the network
+     */
+    public static long restore(BackpropNetwork network, String path) throws Exception {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            Header header = readHeader(path, channel);
+
+            if (!Arrays.equals(header.sizes, network.sizes) || header.bias != network.bias)
+                throw new Exception("snapshot topology mismatch " + path);
+
+            getWeights(channel, header).get(network.ws);
+
+            if (header.version < 2)
+                return 0;
+
+            long position = header.length + (long) header.count * Double.BYTES;
+
+            ByteBuffer trailer = ByteBuffer.allocate(2 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+            channel.read(trailer, position);
+            trailer.flip();
+
+            if (trailer.remaining() < trailer.capacity())
+                throw new Exception("truncated snapshot " + path);
+
+            long epoch = trailer.getLong();
+
+            long count = trailer.getLong();
+
+            if (count != network.getStateSize())
+                throw new Exception("snapshot state mismatch " + path);
+
+            if (count > 0) {
+                double[] state = new double[(int) count];
+
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position + trailer.capacity(), count * Double.BYTES);
+
+                bytes.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(state);
+
+                network.setState(state);
+            }
+
+            return epoch;
+        }
+    }
+
+    /**
+     * Maps a snapshot as a network for inference whose weights are the mapped file.
+     * @param path Snapshot file path
+     * @return Network
+     * @throws Exception if the file is not a snapshot of this version
+     */
+    public static MappedNetwork map(String path) throws Exception {
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            Header header = readHeader(path, channel);
+
+            return new MappedNetwork(header.sizes, header.bias, header.activation, getWeights(channel, header));
+        }
+    }
+
+    /**
+     * Reads and checks the header of a snapshot.
+     * @param path    Snapshot file path
+     * @param channel Snapshot file channel
+     * @return Header
+     * @throws Exception if the file is not a snapshot of this version
+     */
+    static Header readHeader(String path, FileChannel channel) throws Exception {
+        ByteBuffer prefix = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        channel.read(prefix, 0);
+        prefix.flip();
+
+        if (prefix.remaining() < prefix.capacity() || prefix.getInt() != MAGIC)
+            throw new Exception("not a snapshot " + path);
+
+        int version = prefix.getInt();
+
+        if (version < 1 || version > VERSION)
+            throw new Exception("unsupported snapshot version " + version + " " + path);
+
+        Header header = new Header();
+
+        header.version = version;
+
+        header.length = prefix.getInt();
+
+        ByteBuffer bytes = ByteBuffer.allocate(header.length).order(ByteOrder.LITTLE_ENDIAN);
+
+        channel.read(bytes, 0);
+        bytes.flip();
+        bytes.position(prefix.capacity());
+
+        header.bias = bytes.getInt() != 0;
+
+        int mode = bytes.getInt();
+
+        int layers = bytes.getInt();
+
+        if (mode < 0 || mode >= Activation.Mode.values().length || layers < 2 || header.length != getLength(layers))
+            throw new Exception("corrupt snapshot " + path);
+
+        header.activation = new Sigmoid(Activation.Mode.values()[mode], bytes.getDouble());
+
+        header.sizes = new int[layers];
+
+        for (int layer = 0; layer < layers; layer++)
+            header.sizes[layer] = bytes.getInt();
+
+        header.count = bytes.getInt();
+
+        // Count the weights the sizes call for without allocating them
+        long count = 0;
+
+        for (int layer = 0; layer + 1 < layers; layer++)
+            count += (long) header.sizes[layer + 1] * (header.sizes[layer] + (header.bias ? 1 : 0));
+
+        if (header.count != count)
+            throw new Exception("corrupt snapshot " + path);
+
+        if (channel.size() < header.length + count * Double.BYTES)
+            throw new Exception("truncated snapshot " + path);
+
+        return header;
+    }
+
+    /**
+     * Maps the weights of a snapshot.
+     * @param channel Snapshot file channel
+     * @param header  Header
+     * @return Read-only weights
+     * @throws IOException
+     */
+    static DoubleBuffer getWeights(FileChannel channel, Header header) throws IOException {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY,
+                header.length, (long) header.count * Double.BYTES);
+
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+
+        return bytes.asDoubleBuffer();
+    }
+
+    /**
+     * Gets the header length, padded so the weights start on a double boundary.
+     * @param sizes Number of layer sizes
+     * @return Header length in bytes
+     */
+    static int getLength(int sizes) {
+        int length = 6 * Integer.BYTES + Double.BYTES + (sizes + 1) * Integer.BYTES;
+
+        return (length + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+    }
+
+    /**
+     * Writes doubles through a buffer.
+     * @param channel File channel
+     * @param bytes   Empty buffer
+     * @param values  Doubles
+     * @throws IOException
+     */
+    static void write(FileChannel channel, ByteBuffer bytes, double[] values) throws IOException {
+        DoubleBuffer doubles = bytes.asDoubleBuffer();
+
+        for (int from = 0; from < values.length; from += doubles.capacity()) {
+            int count = Math.min(doubles.capacity(), values.length - from);
+
+            doubles.clear();
+
+            doubles.put(values, from, count);
+
+            bytes.position(count * Double.BYTES);
+
+            write(channel, bytes);
+        }
+    }
+
+    /**
+     * Writes and clears a buffer.
+     * @param channel File channel
+     * @param bytes   Buffer
+     * @throws IOException
+     */
+    static void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+
+        while (bytes.hasRemaining())
+            channel.write(bytes);
+
+        bytes.clear();
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class tunes the learning rate, momentum, hidden width, batch size and seed of a
+ * {@link BackpropMomentumNetwork} over a grid or at random, training the trials in parallel with
+ * successive halving.
+ * <p>Every trial starts with a small budget of epochs. After each rung the trials are ranked by their
+ * loss on validation patterns and only the best 1 / ETA of them go on, with ETA times the budget, so
+ * most of the epochs go to the promising trials. Each trial has its own network, workspaces and
+ * random numbers and the patterns are only read, so trials share nothing mutable; a fixed pool runs
+ * as many at once as there are workers.</p>
+ * @author Ron.Coleman
+ */
+public class Sweep {
+    // Survivors of each rung are the best 1 / ETA
+    public final static int ETA = 3;
+
+    // Epochs of the first rung
+    public final static int MIN_EPOCHS = 10;
+
+    // Most epochs of any trial
+    public final static int MAX_EPOCHS = 810;
+
+    // Fraction of the patterns held out for validation
+    public final static double HOLD_OUT = 0.2;
+
+    /**
+     * This class holds one trial: its hyperparameters, network and results.
+     */
+    public static class Trial {
+        // Hyperparameters
+        public final double rate;
+        public final double momentum;
+        public final int hidden;
+        public final int batchSize;
+        public final long seed;
+
+        // Network or null until first trained
+        protected BackpropNetwork network = null;
+
+        // Epochs trained
+        protected int epochs = 0;
+
+        // Validation loss after the last rung
+        protected double loss = Double.POSITIVE_INFINITY;
+
+        // Lowest validation loss after any rung and the epochs trained then
+        protected double best = Double.POSITIVE_INFINITY;
+        protected int bestEpochs = 0;
+
+        // Last rung reached
+        protected int rung = 0;
+
+        /**
+         * Constructor
+         * @param rate      Learning rate
+         * @param momentum  Fraction of the prior weight change
+         * @param hidden    Neurons in the hidden layer
+         * @param batchSize Patterns per weight update
+         * @param seed      Seed of the initial weights
+         */
+        public Trial(double rate, double momentum, int hidden, int batchSize, long seed) {
+            this.rate = rate;
+            this.momentum = momentum;
+            this.hidden = hidden;
+            this.batchSize = batchSize;
+            this.seed = seed;
+        }
+
+        /**
+         * Trains the network up to a number of epochs in all and measures the validation loss.
+         * @param data   Training inputs, training ideals, validation inputs and validation ideals
+         * @param budget Epochs in all
+         * @return This trial
+         */
+        Trial train(double[][][] data, int budget) {
+            if (network == null) {
+                int[] sizes = {data[0][0].length, hidden, data[1][0].length};
+
+                BackpropMomentumNetwork bp = new BackpropMomentumNetwork(sizes, new Random(seed));
+
+                bp.setMomentum(momentum);
+
+                bp.setRate(rate);
+
+                bp.setBatchSize(batchSize);
+
+                bp.setTrainingSet(data[0], data[1]);
+
+                network = bp;
+            }
+
+            for (; epochs < budget; epochs++)
+                network.train();
+
+            double[][] outputs = new double[data[2].length][data[3][0].length];
+
+            loss = ConvergenceController.getLoss(network, data[2], data[3], outputs);
+
+            // A diverged network ranks last
+            if (Double.isNaN(loss))
+                loss = Double.POSITIVE_INFINITY;
+
+            if (loss < best) {
+                best = loss;
+                bestEpochs = epochs;
+            }
+
+            return this;
+        }
+
+        /**
+         * Gets the epochs trained.
+         * @return Epochs
+         */
+        public int getEpochs() {
+            return epochs;
+        }
+
+        /**
+         * Gets the validation loss after the last rung.
+         * @return Loss
+         */
+        public double getLoss() {
+            return loss;
+        }
+
+        /**
+         * Gets the lowest validation loss after any rung.
+         * @return Loss
+         */
+        public double getBest() {
+            return best;
+        }
+
+        /**
+         * Gets the epochs trained at the lowest validation loss.
+         * @return Epochs
+         */
+        public int getBestEpochs() {
+            return bestEpochs;
+        }
+
+        /**
+         * Gets the last rung reached.
+         * @return Rung, 0 for the first
+         */
+        public int getRung() {
+            return rung;
+        }
+
+        /**
+         * Gets the network.
+         * @return Network or null if never trained
+         */
+        public BackpropNetwork getNetwork() {
+            return network;
+        }
+    }
+
+    // Trials in the sweep
+    protected final List<Trial> trials;
+
+    // Training inputs, training ideals, validation inputs and validation ideals
+    protected final double[][][] data;
+
+    // Trials trained at once
+    protected final int parallelism;
+
+    /**
+     * Runs a demo: sweeps the grid on iris, writes the ranked table and compares the epochs spent
+     * with training every trial to the end.
+     * @param args Command line arguments: optional results file, then optionally "random" and a number of trials
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        double[] rates = {0.05, 0.1, 0.25, 0.5, 1.0};
+        double[] momentums = {0, 0.3, 0.6, 0.9};
+        int[] hiddens = {4, 8, 16};
+        int[] batchSizes = {1, 8, 32};
+        long[] seeds = {0, 1};
+
+        List<Trial> trials = args.length > 2 && args[1].equals("random") ?
+                random(rates, momentums, hiddens, batchSizes, Integer.parseInt(args[2]), new Random(0)) :
+                grid(rates, momentums, hiddens, batchSizes, seeds);
+
+        double[][][] iris = FloatPrecisionReport.getIris();
+
+        double[][][] data = ConvergenceController.split(iris[0], iris[1], HOLD_OUT, new Random(0));
+
+        Sweep sweep = new Sweep(trials, data, Runtime.getRuntime().availableProcessors());
+
+        long start = System.nanoTime();
+
+        List<Trial> ranked = sweep.run();
+
+        double ms = (System.nanoTime() - start) / 1e6;
+
+        long spent = 0;
+
+        for (Trial trial : ranked)
+            spent += trial.epochs;
+
+        System.out.printf("%d trials in %.0f ms, %d epochs spent instead of %d\n",
+                ranked.size(), ms, spent, (long) ranked.size() * MAX_EPOCHS);
+
+        write(ranked, new PrintWriter(System.out), 10);
+
+        if (args.length > 0) {
+            try (PrintWriter writer = new PrintWriter(args[0])) {
+                write(ranked, writer, ranked.size());
+            }
+        }
+    }
+
+    /**
+     * Gets the trials of every combination of the hyperparameters.
+     * @param rates      Learning rates
+     * @param momentums  Momentums
+     * @param hiddens    Hidden widths
+     * @param batchSizes Batch sizes
+     * @param seeds      Seeds
+     * @return Trials
+     */
+    public static List<Trial> grid(double[] rates, double[] momentums, int[] hiddens, int[] batchSizes, long[] seeds) {
+        List<Trial> trials = new ArrayList<>();
+
+        for (double rate : rates)
+            for (double momentum : momentums)
+                for (int hidden : hiddens)
+                    for (int batchSize : batchSizes)
+                        for (long seed : seeds)
+                            trials.add(new Trial(rate, momentum, hidden, batchSize, seed));
+
+        return trials;
+    }
+
+    /**
+     * Gets trials at random: the learning rate log-uniform and the momentum uniform between the least
+     * and greatest given, the width and batch size among those given and a random seed.
+     * @param rates      Learning rates, of which only the range is used
+     * @param momentums  Momentums, of which only the range is used
+     * @param hiddens    Hidden widths
+     * @param batchSizes Batch sizes
+     * @param count      Number of trials
+     * @param ran        Random number generator
+     * @return Trials
+     */
+    public static List<Trial> random(double[] rates, double[] momentums, int[] hiddens, int[] batchSizes,
+                                     int count, Random ran) {
+        double lowRate = Math.log(min(rates));
+        double highRate = Math.log(max(rates));
+
+        double lowMomentum = min(momentums);
+        double highMomentum = max(momentums);
+
+        List<Trial> trials = new ArrayList<>();
+
+        for (int k = 0; k < count; k++) {
+            double rate = Math.exp(lowRate + ran.nextDouble() * (highRate - lowRate));
+
+            double momentum = lowMomentum + ran.nextDouble() * (highMomentum - lowMomentum);
+
+            trials.add(new Trial(rate, momentum, hiddens[ran.nextInt(hiddens.length)],
+                    batchSizes[ran.nextInt(batchSizes.length)], ran.nextLong()));
+        }
+
+        return trials;
+    }
+
+    /**
+     * Constructor
+     * @param trials      Trials
+     * @param data        Training inputs, training ideals, validation inputs and validation ideals
+     * @param parallelism Trials trained at once
+     */
+    public Sweep(List<Trial> trials, double[][][] data, int parallelism) {
+        this.trials = trials;
+        this.data = data;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Runs the successive halving.
+     * @return Trials ranked best first: the ones which went furthest, then by their lowest validation
+     * loss, since a trial may overfit in its last rung
+     * @throws Exception if a trial fails
+     */
+    public List<Trial> run() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+
+        try {
+            List<Trial> survivors = new ArrayList<>(trials);
+
+            int budget = MIN_EPOCHS;
+
+            for (int rung = 0; ; rung++) {
+                final int epochs = budget;
+
+                List<Callable<Trial>> tasks = new ArrayList<>();
+
+                for (Trial trial : survivors) {
+                    trial.rung = rung;
+
+                    tasks.add(() -> trial.train(data, epochs));
+                }
+
+                for (Future<Trial> future : pool.invokeAll(tasks))
+                    future.get();
+
+                survivors.sort(Comparator.comparingDouble(Trial::getLoss));
+
+                if (survivors.size() <= 1 || budget >= MAX_EPOCHS)
+                    break;
+
+                survivors = new ArrayList<>(survivors.subList(0, Math.max(1, survivors.size() / ETA)));
+
+                budget = Math.min(MAX_EPOCHS, budget * ETA);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        List<Trial> ranked = new ArrayList<>(trials);
+
+        ranked.sort(Comparator.comparingInt(Trial::getRung).reversed().thenComparingDouble(Trial::getBest));
+
+        return ranked;
+    }
+
+    /**
+     * Writes the ranked results as a table.
+     * @param ranked Trials ranked best first
+     * @param writer Writer
+     * @param rows   Most rows to write
+     */
+    public static void write(List<Trial> ranked, PrintWriter writer, int rows) {
+        writer.printf("%4s %8s %8s %6s %5s %20s %6s %4s %10s %10s %6s\n",
+                "rank", "rate", "momentum", "hidden", "batch", "seed", "epochs", "rung", "loss", "best", "at");
+
+        for (int k = 0; k < Math.min(rows, ranked.size()); k++) {
+            Trial trial = ranked.get(k);
+
+            writer.printf("%4d %8.4f %8.4f %6d %5d %20d %6d %4d %10.6f %10.6f %6d\n",
+                    k + 1, trial.rate, trial.momentum, trial.hidden, trial.batchSize, trial.seed,
+                    trial.epochs, trial.rung, trial.loss, trial.best, trial.bestEpochs);
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Gets the least value.
+     * @param values Values
+     * @return Least value
+     */
+    static double min(double[] values) {
+        double min = values[0];
+
+        for (double value : values)
+            min = Math.min(min, value);
+
+        return min;
+    }
+
+    /**
+     * Gets the greatest value.
+     * @param values Values
+     * @return Greatest value
+     */
+    static double max(double[] values) {
+        double max = values[0];
+
+        for (double value : values)
+            max = Math.max(max, value);
+
+        return max;
+    }
+}
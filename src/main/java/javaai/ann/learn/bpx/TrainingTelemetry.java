@@ -0,0 +1,111 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import javaai.util.CsvSink;
+import javaai.util.Metrics;
+import javaai.util.MetricsSink;
+import javaai.util.TextSink;
+
+import java.util.Random;
+
+/**
+ * This class trains a network with its metrics reported twice a second, then measures what recording
+ * costs by timing the same training with and without metrics.
+ * @author Ron.Coleman
+ */
+public class TrainingTelemetry {
+    public final static int NUM_EPOCHS = 50;
+
+    public final static int NUM_PATTERNS = 2048;
+
+    public final static int BATCH_SIZE = 64;
+
+    // Milliseconds between reports
+    public final static long PERIOD = 500;
+
+    /**
+     * Runs the demo.
+     * @param args Command line arguments: optional CSV file to report to instead of the console
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {16, 64, 64, 4};
+
+        double[][][] data = ParallelTrainer.getSyntheticData(NUM_PATTERNS, sizes[0], sizes[3], new Random(1));
+
+        MetricsSink sink = args.length > 0 ? new CsvSink(args[0]) : new TextSink();
+
+        Metrics metrics = new Metrics();
+
+        metrics.start(sink, PERIOD);
+
+        try {
+            train(sizes, data, BATCH_SIZE, metrics);
+        }
+        finally {
+            metrics.stop();
+        }
+
+        // Overhead of recording, batch and online where every pattern is timed
+        for (int batchSize : new int[] {BATCH_SIZE, 1}) {
+            double without = Double.MAX_VALUE;
+            double with = Double.MAX_VALUE;
+
+            for (int trial = 0; trial < 3; trial++) {
+                without = Math.min(without, train(sizes, data, batchSize, null));
+                with = Math.min(with, train(sizes, data, batchSize, new Metrics()));
+            }
+
+            System.out.printf("batch %d: %.1f ms without metrics, %.1f ms with, overhead %.1f%%\n",
+                    batchSize, without, with, 100 * (with - without) / without);
+        }
+    }
+
+    /**
+     * Trains a new network.
+     * @param sizes     Layer sizes
+     * @param data      Inputs followed by ideals
+     * @param batchSize Patterns per batch
+     * @param metrics   Metrics or null for none
+     * @return Milliseconds
+     */
+    static double train(int[] sizes, double[][][] data, int batchSize, Metrics metrics) {
+        BackpropNetwork network = new BackpropNetwork(sizes, true, new Random(0));
+
+        network.setTrainingSet(data[0], data[1]);
+
+        network.setOptimizer(new Adam(0.001));
+
+        network.setBatchSize(batchSize);
+
+        network.setMetrics(metrics);
+
+        long start = System.nanoTime();
+
+        for (int epoch = 0; epoch < NUM_EPOCHS; epoch++)
+            network.train();
+
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
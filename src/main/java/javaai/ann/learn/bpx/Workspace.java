@@ -0,0 +1,108 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+/**
+ * This class holds the scratch storage of one pass through a network: each layer's outputs and
+ * deltas. A network owns one for train and compute; each extra thread using the same network needs
+ * its own, so the passes allocate nothing once the workspace exists.
+ * <p>A workspace for a mini-batch holds each layer's outputs and deltas for all rows of the batch as
+ * row-major matrices, plus the gradient summed over the batch with the same layout as the weights.
+ * One only to compute a batch holds just the outputs.</p>
+ * @author Ron.Coleman
+ */
+public class Workspace {
+    // Inputs followed by the outputs of each layer; the inputs are the caller's array
+    final double[][] outputs;
+
+    // Deltas of each layer or null if only for computing
+    final double[][] deltas;
+
+    // Rows the workspace holds
+    final int rows;
+
+    // Gradient summed over a batch or null if not for training a batch
+    final double[] gradients;
+
+    /**
+     * Constructor for one row, which takes the caller's inputs as is.
+     * @param sizes Number of inputs followed by the number of neurons in each layer
+     */
+    Workspace(int[] sizes) {
+        int layers = sizes.length - 1;
+
+        rows = 1;
+
+        outputs = new double[layers + 1][];
+        deltas = new double[layers][];
+
+        for (int layer = 0; layer < layers; layer++) {
+            outputs[layer + 1] = new double[sizes[layer + 1]];
+
+            deltas[layer] = new double[sizes[layer + 1]];
+        }
+
+        gradients = null;
+    }
+
+    /**
+     * Constructor for a batch, which copies the inputs into its first matrix.
+     * @param sizes  Number of inputs followed by the number of neurons in each layer
+     * @param rows   Rows in a batch
+     * @param weights Number of weights in the network to train or 0 only to compute
+     */
+    Workspace(int[] sizes, int rows, int weights) {
+        int layers = sizes.length - 1;
+
+        this.rows = rows;
+
+        outputs = new double[layers + 1][];
+
+        outputs[0] = new double[rows * sizes[0]];
+
+        for (int layer = 0; layer < layers; layer++)
+            outputs[layer + 1] = new double[rows * sizes[layer + 1]];
+
+        if (weights > 0) {
+            deltas = new double[layers][];
+
+            for (int layer = 0; layer < layers; layer++)
+                deltas[layer] = new double[rows * sizes[layer + 1]];
+
+            gradients = new double[weights];
+        }
+        else {
+            deltas = null;
+
+            gradients = null;
+        }
+    }
+
+    /**
+     * Gets the outputs of the last layer.
+     * @return Outputs, overwritten by the next pass
+     */
+    public double[] getOutputs() {
+        return outputs[outputs.length - 1];
+    }
+}
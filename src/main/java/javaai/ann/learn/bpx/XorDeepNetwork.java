@@ -0,0 +1,68 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.learn.bpx;
+
+import java.util.Random;
+
+/**
+ * This class trains a deeper network, two hidden layers of four neurons with bias, on all four
+ * XOR patterns to show backpropagation through any number of layers.
+ * @author Ron.Coleman
+ */
+public class XorDeepNetwork {
+    public final static int NUM_EPOCHS = 10000;
+
+    // Inputs and ideals necessary for XOR
+    public final static double[][] XOR_INPUTS = {
+            {0, 0},
+            {0, 1},
+            {1, 0},
+            {1, 1}
+    };
+
+    public final static double[][] XOR_IDEALS = {
+            {0},
+            {1},
+            {1},
+            {0}
+    };
+
+    public static void main(String[] args) {
+        BackpropNetwork bp = new BackpropNetwork(new int[] {2, 4, 4, 1}, true, new Random(0));
+
+        bp.setTrainingSet(XOR_INPUTS, XOR_IDEALS);
+
+        for (int epoch = 1; epoch <= NUM_EPOCHS; epoch++) {
+            double error = bp.train();
+
+            if (epoch % 1000 == 0)
+                System.out.printf("%8d %8.6f\n", epoch, error);
+        }
+
+        for (int k = 0; k < XOR_INPUTS.length; k++) {
+            double actual = bp.compute(XOR_INPUTS[k]);
+
+            System.out.println("actual=" + actual + " ideal=" + XOR_IDEALS[k][0]);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.ann.output;
+
+import javaai.util.ColumnarMLDataSet;
+import javaai.util.Dataset;
+import javaai.util.EquilateralEncoder;
+import javaai.util.Helper;
+import javaai.util.Metrics;
+import org.encog.Encog;
+import org.encog.engine.network.activation.ActivationTANH;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.train.BasicTraining;
+import org.encog.neural.networks.BasicNetwork;
+import org.encog.neural.networks.layers.BasicLayer;
+import org.encog.neural.networks.training.propagation.resilient.ResilientPropagation;
+
+/**
+ * This code trains an Encog network on the iris data straight from its columns.
+ * The measures are normalized to [-1, 1] and the species encoded equilateral as the trainer
+ * reads each row, so the data is never copied into arrays of pairs.
+ * @author Ron.Coleman
+ */
+public class IrisTraining {
+    /** Error tolerance: 1% */
+    public final static double TOLERANCE = 0.01;
+
+    /** Most epochs to train */
+    public final static int MAX_EPOCHS = 1000;
+
+    /**
+     * Launch point for program.
+     * @param args Command line arguments.
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        Dataset dataset = Helper.loadDataset("data/iris.csv", Ontology.parsers);
+
+        int species = dataset.getColumn("Species");
+
+        EquilateralEncoder encoder = new EquilateralEncoder(dataset, species);
+
+        // Normalize the measures and encode the species
+        ColumnarMLDataSet trainingSet = new ColumnarMLDataSet(dataset);
+
+        for (int col = 0; col < dataset.getColumnCount(); col++) {
+            if (dataset.isNumeric(col))
+                trainingSet.addInput(col, ColumnarMLDataSet.getNormalizer(dataset, col, 1, -1));
+        }
+
+        trainingSet.addIdeal(species, encoder);
+
+        // Instantiate the network
+        BasicNetwork network = new BasicNetwork();
+
+        network.addLayer(new BasicLayer(null, true, trainingSet.getInputSize()));
+
+        network.addLayer(new BasicLayer(new ActivationTANH(), true, 5));
+
+        network.addLayer(new BasicLayer(new ActivationTANH(), false, trainingSet.getIdealSize()));
+
+        network.getStructure().finalizeStructure();
+
+        network.reset(0);
+
+        final BasicTraining training = new ResilientPropagation(network, trainingSet);
+
+        Metrics metrics = Helper.getMetrics();
+
+        int epoch = 0;
+
+        try {
+            Helper.log(epoch, training, false);
+            do {
+                long started = System.nanoTime();
+
+                training.iteration();
+
+                metrics.epoch(trainingSet.size(), training.getError(), System.nanoTime() - started);
+
+                epoch++;
+
+                Helper.log(epoch, training, false);
+
+            } while (training.getError() > TOLERANCE && epoch < MAX_EPOCHS);
+
+            training.finishTraining();
+        }
+        finally {
+            metrics.stop();
+        }
+
+        Helper.log(epoch, training, true);
+
+        // Count the misses
+        int misses = 0;
+
+        for (MLDataPair pair : trainingSet) {
+            double[] outputs = network.compute(pair.getInput()).getData();
+
+            if (encoder.decode(outputs) != encoder.decode(pair.getIdealArray()))
+                misses++;
+        }
+
+        System.out.println("misses: " + misses + " of " + trainingSet.size());
+
+        Encog.getInstance().shutdown();
+    }
+}
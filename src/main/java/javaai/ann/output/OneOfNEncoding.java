@@ -22,10 +22,10 @@
  */
 package javaai.ann.output;
 
+import javaai.util.Dataset;
 import javaai.util.Helper;
+import javaai.util.OneOfNEncoder;
 
-import java.util.HashMap;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,23 +40,23 @@ public class OneOfNEncoding {
     public static void main(String[] args) {
         try {
             // Load the data
-            Helper.loadCsv("data/iris.csv", Ontology.parsers);
+            Dataset dataset = Helper.loadDataset("data/iris.csv", Ontology.parsers);
 
             // If we get here without an exception, then get title of last column
-            String title = Helper.getTitle(4);
+            String title = dataset.getTitle(4);
 
             System.out.println(title);
 
             // Calculate the one-of-n
-            HashMap<String, List<Integer>> oneofn = Helper.encodeOneOfN(4);
+            OneOfNEncoder oneofn = new OneOfNEncoder(dataset, 4);
 
             // Output the results
-            for (String key : oneofn.keySet()) {
-                List<Integer> ideals = oneofn.get(key);
+            for (int ordinal = 0; ordinal < oneofn.getCount(); ordinal++) {
+                double[] ideals = oneofn.encode(ordinal);
 
-                System.out.print(key + ": ");
-                for(Integer ideal: ideals) {
-                    System.out.print(ideal + " ");
+                System.out.print(dataset.getNominalValue(4, ordinal) + ": ");
+                for(double ideal: ideals) {
+                    System.out.printf("%.0f ", ideal);
                 }
                 System.out.println();
             }
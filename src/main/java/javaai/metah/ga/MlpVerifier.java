@@ -22,6 +22,8 @@
  */
 package javaai.metah.ga;
 
+import javaai.util.Sigmoid;
+
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.util.function.Function;
@@ -58,6 +60,11 @@ abstract public class MlpVerifier {
      */
     protected double[][] inputs;
 
+    /**
+     * Activation of every neuron
+     */
+    protected Sigmoid activation = new Sigmoid();
+
     /**
      * Ideal outputs
      */
@@ -129,9 +136,7 @@ abstract public class MlpVerifier {
      * @return Double
      */
     protected double sigmoid(double z) {
-        double y = 1.0 / (1.0 + Math.exp(-z));
-
-        return y;
+        return activation.apply(z);
     }
 
     /**
@@ -30,6 +30,9 @@ import org.encog.ml.ea.train.basic.TrainEA;
 import org.encog.ml.genetic.crossover.Splice;
 import org.encog.ml.genetic.genome.DoubleArrayGenome;
 import org.encog.ml.genetic.genome.DoubleArrayGenomeFactory;
+import javaai.util.Helper;
+import javaai.util.Metrics;
+import java.io.IOException;
 import java.util.Random;
 import static javaai.util.Helper.asString;
 
@@ -81,7 +84,19 @@ public class XorGa {
         ga.addOperation(0.9, new Splice(CHROMOSOME_SIZE/2));
 
         // Do the learning algorithm
-        train(ga);
+        Metrics metrics = Helper.getMetrics();
+
+        try {
+            train(ga, metrics);
+        }
+        finally {
+            try {
+                metrics.stop();
+            }
+            catch (IOException e) {
+                System.err.println("metrics not closed: " + e.getMessage());
+            }
+        }
 
         // Return the best individual
         DoubleArrayGenome best = (DoubleArrayGenome)ga.getBestGenome();
@@ -107,8 +122,9 @@ public class XorGa {
     /**
      * Runs the learning algorithm.
      * @param ga
+     * @param metrics Metrics to record each generation to as an epoch of the population
      */
-    protected void train(TrainEA ga) {
+    protected void train(TrainEA ga, Metrics metrics) {
         int iteration = 0;
 
         boolean converged = false;
@@ -118,12 +134,16 @@ public class XorGa {
         while(!converged) {
             //output("iteration = "+iteration, genetic.getPopulation());
 
+            long started = System.nanoTime();
+
             // Run natural selection iteration.
             ga.iteration();
 
             // Get the value of the best solution for f(x)
             double loss = ga.getError();
 
+            metrics.epoch(POPULATION_SIZE, loss, System.nanoTime() - started);
+
             DoubleArrayGenome best = (DoubleArrayGenome) ga.getBestGenome();
 
 //            System.out.printf("%d y=%4.2f same=%d >> %s\n",iteration, y, sameCount, asString(best));
@@ -22,6 +22,7 @@
  */
 package javaai.metah.ga;
 
+import javaai.util.Sigmoid;
 import org.encog.ml.CalculateScore;
 import org.encog.ml.MLMethod;
 import org.encog.ml.genetic.genome.DoubleArrayGenome;
@@ -37,6 +38,12 @@ public class XorGaObjective implements CalculateScore {
     public final static int NUM_WEIGHTS = 8;
     public final static double RANGE_MAX = 10.0;
     public final static double RANGE_MIN = -10.0;
+
+    /**
+     * Activation of every neuron
+     */
+    protected Sigmoid activation = new Sigmoid();
+
     protected static Random ran = null;
     static {
         long seed = System.nanoTime();
@@ -198,9 +205,7 @@ public class XorGaObjective implements CalculateScore {
      * @return sigmoid of z
      */
     protected double sigmoid(double z) {
-        double y = 1.0 / (1+ Math.exp(-z));
-
-        return y;
+        return activation.apply(z);
     }
 
     /**
@@ -0,0 +1,150 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+/**
+ * This class is the base of the activation functions. Each function which needs exp or tanh can
+ * compute it in one of three modes:
+ * <ul>
+ *     <li>EXACT: with Math, as accurate as the JDK is;</li>
+ *     <li>TABLE: by linear interpolation in a table, built once, dense enough for the tolerance;</li>
+ *     <li>RATIONAL: with e^x as 2^k times the ratio of two short polynomials, long enough for the tolerance.</li>
+ * </ul>
+ * The tolerance bounds the absolute error of the output. Functions which need neither, e.g., ReLU,
+ * are always exact. Functions only defined on a whole vector, e.g., softmax, are
+ * {@link VectorActivation}s instead.
+ * @author Ron.Coleman
+ */
+public abstract class Activation {
+    /** Modes of computing the function */
+    public enum Mode { EXACT, TABLE, RATIONAL }
+
+    /** Default tolerance of the approximate modes */
+    public final static double TOLERANCE = 1e-6;
+
+    /** Mode */
+    protected final Mode mode;
+
+    /** Largest absolute error of the output */
+    protected final double tolerance;
+
+    /**
+     * Constructor
+     * @param mode      Mode
+     * @param tolerance Largest absolute error of the output, ignored if the mode is exact
+     */
+    protected Activation(Mode mode, double tolerance) {
+        this.mode = mode;
+        this.tolerance = check(mode, tolerance);
+    }
+
+    /**
+     * Checks the tolerance of a mode.
+     * @param mode      Mode
+     * @param tolerance Largest absolute error of the output, ignored if the mode is exact
+     * @return Tolerance, 0 if the mode is exact
+     * @throws IllegalArgumentException if the tolerance is not in (0, 0.5) for an approximate mode
+     */
+    static double check(Mode mode, double tolerance) {
+        if (mode != Mode.EXACT && !(tolerance > 0 && tolerance < 0.5))
+            throw new IllegalArgumentException("bad tolerance " + tolerance);
+
+        return mode == Mode.EXACT ? 0 : tolerance;
+    }
+
+    /**
+     * Computes the function of one value.
+     * @param x Value
+     * @return Output
+     */
+    public abstract double apply(double x);
+
+    /**
+     * Computes the function of a vector in place.
+     * @param xs   Values, replaced by the outputs
+     * @param from First value, inclusive
+     * @param to   Last value, exclusive
+     */
+    public void apply(double[] xs, int from, int to) {
+        for (int k = from; k < to; k++)
+            xs[k] = apply(xs[k]);
+    }
+
+    /**
+     * Computes the derivative from the output, which is what backpropagation has at hand.
+     * @param y Output
+     * @return Derivative
+     */
+    public abstract double derivative(double y);
+
+    /**
+     * Gets the mode.
+     * @return Mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the tolerance.
+     * @return Largest absolute error of the output, 0 if exact
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Measures the largest error against another activation, e.g., the exact one, at evenly spaced values.
+     * @param other   Activation to compare with
+     * @param from    Lowest value
+     * @param to      Highest value
+     * @param samples Number of values
+     * @return Largest absolute difference of the outputs
+     */
+    public double getError(Activation other, double from, double to, int samples) {
+        double max = 0;
+
+        for (int k = 0; k < samples; k++) {
+            double x = from + (to - from) * k / (samples - 1);
+
+            max = Math.max(max, Math.abs(apply(x) - other.apply(x)));
+        }
+
+        return max;
+    }
+
+    /**
+     * Evaluates a polynomial by Horner's rule.
+     * @param cs Coefficients, lowest power first
+     * @param x  Value
+     * @return Polynomial of x
+     */
+    static double horner(double[] cs, double x) {
+        double y = cs[cs.length - 1];
+
+        for (int k = cs.length - 2; k >= 0; k--)
+            y = y * x + cs[k];
+
+        return y;
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * This class streams shuffled mini-batches from a CSV file which may be larger than the heap.
+ * <p>The rows come from the binary column cache of the file (see ColumnCache), which is built a chunk
+ * at a time if it is missing or stale, and memory-mapped a block of rows at a time. Each epoch visits
+ * the blocks in random order and passes their rows through a reservoir of fixed size from which rows
+ * are drawn at random, so the heap holds one block and the reservoir no matter how big the file is.
+ * The shuffle is not a uniform permutation of the whole file but rows from across the file mix
+ * as long as the reservoir holds several blocks.</p>
+ * <p>A batch is a row-major double[] with one value per column: numeric values as is, nominal values
+ * as their dictionary ordinals, -1 if missing. "Don't care" columns are left out.</p>
+ * @author Ron.Coleman
+ */
+public class BatchIterator implements Iterator<double[]>, Closeable {
+    /** Default rows per block */
+    public final static int BLOCK_ROWS = 1 << 14;
+
+    /** Default rows in the reservoir */
+    public final static int RESERVOIR_ROWS = 1 << 16;
+
+    /** Bytes of the CSV file parsed at once when building the cache */
+    final static long CHUNK = 1L << 26;
+
+    /** Cache file */
+    protected final FileChannel channel;
+
+    /** Cache header */
+    protected final ColumnCache.Header header;
+
+    /** Columns in the cache which are not "don't care" columns */
+    protected final int[] kept;
+
+    /** Number of values per row */
+    protected final int width;
+
+    /** Rows per batch */
+    protected final int batchSize;
+
+    /** Rows per block */
+    protected final int blockRows;
+
+    /** Random number generator */
+    protected final Random ran;
+
+    /** Values of the current block by kept column */
+    protected final double[][] doubles;
+    protected final int[][] ordinals;
+
+    /** Reservoir of rows, row-major */
+    protected final double[] reservoir;
+
+    /** Capacity of the reservoir in rows */
+    protected final int capacity;
+
+    /** Rows in the reservoir */
+    protected int reserved;
+
+    /** Blocks in the order of the current epoch */
+    protected int[] order;
+
+    /** Next block in the order */
+    protected int nextBlock;
+
+    /** Rows in the current block and next row to take from it */
+    protected int blockSize;
+    protected int nextRow;
+
+    /** Rows emitted in the current epoch */
+    protected int emitted;
+
+    /**
+     * Constructor with the default block and reservoir sizes.
+     * @param path      CSV file path
+     * @param parsers   Parsers to interpret the columns
+     * @param batchSize Rows per batch
+     * @param ran       Random number generator
+     * @throws Exception
+     */
+    public BatchIterator(String path, List<Function<String, Object>> parsers, int batchSize, Random ran)
+            throws Exception {
+        this(path, parsers, batchSize, BLOCK_ROWS, RESERVOIR_ROWS, ran);
+    }
+
+    /**
+     * Constructor
+     * @param path          CSV file path
+     * @param parsers       Parsers to interpret the columns
+     * @param batchSize     Rows per batch
+     * @param blockRows     Rows per block read from the file
+     * @param reservoirRows Rows in the reservoir, normally several blocks
+     * @param ran           Random number generator
+     * @throws Exception if the file can't be parsed or cached
+     */
+    public BatchIterator(String path, List<Function<String, Object>> parsers, int batchSize, int blockRows,
+                         int reservoirRows, Random ran) throws Exception {
+        FileChannel cache = ColumnCache.open(path);
+
+        ColumnCache.Header read = cache == null ? null : ColumnCache.readHeader(path, cache, parsers);
+
+        // Build the cache without loading the file
+        if (read == null) {
+            if (cache != null)
+                cache.close();
+
+            ColumnCache.build(path, parsers, CHUNK);
+
+            cache = ColumnCache.open(path);
+
+            read = cache == null ? null : ColumnCache.readHeader(path, cache, parsers);
+
+            if (read == null)
+                throw new Exception("can't read cache of " + path);
+        }
+
+        this.channel = cache;
+        this.header = read;
+        this.batchSize = batchSize;
+        this.blockRows = blockRows;
+        this.ran = ran;
+
+        int count = 0;
+
+        for (ColumnBuffer column : header.columns) {
+            if (column.type != ColumnBuffer.UNTYPED)
+                count++;
+        }
+
+        kept = new int[count];
+
+        count = 0;
+
+        for (int col = 0; col < header.columns.size(); col++) {
+            if (header.columns.get(col).type != ColumnBuffer.UNTYPED)
+                kept[count++] = col;
+        }
+
+        width = kept.length;
+
+        doubles = new double[width][];
+        ordinals = new int[width][];
+
+        for (int k = 0; k < width; k++) {
+            if (header.columns.get(kept[k]).type == ColumnBuffer.NUMERIC)
+                doubles[k] = new double[blockRows];
+            else
+                ordinals[k] = new int[blockRows];
+        }
+
+        capacity = Math.max(1, reservoirRows);
+
+        reservoir = new double[capacity * width];
+
+        reset();
+    }
+
+    /**
+     * Starts a new epoch with a new order of blocks.
+     */
+    public void reset() {
+        int blocks = (int) ((header.rows + (long) blockRows - 1) / blockRows);
+
+        order = CsvLoader.permute(blocks, ran);
+
+        nextBlock = 0;
+        blockSize = 0;
+        nextRow = 0;
+        reserved = 0;
+        emitted = 0;
+    }
+
+    /**
+     * Gets the number of rows in an epoch.
+     * @return Row count
+     */
+    public int getRowCount() {
+        return header.rows;
+    }
+
+    /**
+     * Gets the number of values per row.
+     * @return Width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the title of a value in a row.
+     * @param k Index in the row
+     * @return Title
+     */
+    public String getTitle(int k) {
+        return header.columns.get(kept[k]).title;
+    }
+
+    /**
+     * Tests whether a value in a row is numeric.
+     * @param k Index in the row
+     * @return True if numeric, false if a nominal ordinal
+     */
+    public boolean isNumeric(int k) {
+        return header.columns.get(kept[k]).type == ColumnBuffer.NUMERIC;
+    }
+
+    /**
+     * Gets the nominal value of an ordinal.
+     * @param k       Index in the row of a nominal
+     * @param ordinal Dictionary ordinal
+     * @return Nominal value
+     */
+    public Object getNominalValue(int k, int ordinal) {
+        return header.columns.get(kept[k]).dictionary.get(ordinal);
+    }
+
+    /**
+     * Tests whether the epoch has more rows.
+     * @return True if there's another batch
+     */
+    @Override
+    public boolean hasNext() {
+        return emitted < header.rows;
+    }
+
+    /**
+     * Gets the next batch as a new array.
+     * @return Batch of batchSize rows, or fewer at the end of the epoch
+     */
+    @Override
+    public double[] next() {
+        double[] batch = new double[batchSize * width];
+
+        int rows = next(batch);
+
+        if (rows == 0)
+            throw new NoSuchElementException();
+
+        return rows == batchSize ? batch : Arrays.copyOf(batch, rows * width);
+    }
+
+    /**
+     * Gets the next batch into a buffer without allocating.
+     * @param batch Buffer with room for batchSize rows
+     * @return Number of rows in the batch, batchSize except at the end of the epoch, 0 after it
+     */
+    public int next(double[] batch) {
+        int rows = 0;
+
+        try {
+            while (rows < batchSize && emitted < header.rows) {
+                fill();
+
+                // Draw a row at random and fill its slot with the last row
+                int pick = ran.nextInt(reserved);
+
+                System.arraycopy(reservoir, pick * width, batch, rows * width, width);
+
+                reserved--;
+
+                System.arraycopy(reservoir, reserved * width, reservoir, pick * width, width);
+
+                rows++;
+
+                emitted++;
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Fills the reservoir from the blocks.
+     * @throws IOException
+     */
+    protected void fill() throws IOException {
+        while (reserved < capacity) {
+            if (nextRow == blockSize) {
+                if (nextBlock == order.length)
+                    return;
+
+                load(order[nextBlock++]);
+            }
+
+            int offset = reserved * width;
+
+            for (int k = 0; k < width; k++)
+                reservoir[offset + k] = doubles[k] != null ? doubles[k][nextRow] : ordinals[k][nextRow];
+
+            nextRow++;
+
+            reserved++;
+        }
+    }
+
+    /**
+     * Loads a block of rows from the mapped cache.
+     * @param block Block
+     * @throws IOException
+     */
+    protected void load(int block) throws IOException {
+        long first = (long) block * blockRows;
+
+        blockSize = (int) Math.min(blockRows, header.rows - first);
+
+        nextRow = 0;
+
+        for (int k = 0; k < width; k++) {
+            int col = kept[k];
+
+            long position = header.positions.get(col);
+
+            if (doubles[k] != null) {
+                MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position + first * Double.BYTES, (long) blockSize * Double.BYTES);
+                values.order(ByteOrder.LITTLE_ENDIAN);
+
+                values.asDoubleBuffer().get(doubles[k], 0, blockSize);
+            }
+            else {
+                MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position + first * Integer.BYTES, (long) blockSize * Integer.BYTES);
+                values.order(ByteOrder.LITTLE_ENDIAN);
+
+                values.asIntBuffer().get(ordinals[k], 0, blockSize);
+
+                int[] map = header.maps.get(col);
+
+                for (int row = 0; row < blockSize; row++) {
+                    int ordinal = ordinals[k][row];
+
+                    ordinals[k][row] = ordinal < 0 ? -1 : map[ordinal];
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the cache file.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
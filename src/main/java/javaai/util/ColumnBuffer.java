@@ -0,0 +1,291 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import static javaai.util.Option.None;
+
+/**
+ * This class accumulates the parsed values of one CSV column in primitive storage.
+ * The first value which is not None decides the column type: a Double makes the column
+ * numeric, anything else makes it nominal, that is, dictionary-encoded as ordinals.
+ * Numeric columns also keep their statistics as values are added.
+ * @author Ron.Coleman
+ */
+class ColumnBuffer {
+    /** Column types */
+    final static int UNTYPED = 0;
+    final static int NUMERIC = 1;
+    final static int NOMINAL = 2;
+
+    /** Initial capacity of the buffer */
+    final static int CAPACITY = 1024;
+
+    /** Column title */
+    final String title;
+
+    /** Column type */
+    int type = UNTYPED;
+
+    /** Number of values in the column */
+    int size = 0;
+
+    /** Numeric values or null if the column is not numeric */
+    double[] doubles = null;
+
+    /** Nominal ordinals or null if the column is not nominal */
+    int[] ordinals = null;
+
+    /** Statistics of the numeric values or null if the column is not numeric */
+    ColumnStats stats = null;
+
+    /** Distinct nominal values in order of first appearance */
+    ArrayList<Object> dictionary = null;
+
+    /** Fields from which the distinct nominal values were first parsed */
+    ArrayList<String> tokens = null;
+
+    /** Nominal value -> ordinal */
+    HashMap<Object, Integer> lookup = null;
+
+    /**
+     * Constructor
+     * @param title Column title
+     */
+    ColumnBuffer(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Adds a parsed value to the column.
+     * @param obj   Parsed value
+     * @param token Field the value was parsed from
+     * @throws Exception if the value type does not match the column type
+     */
+    void add(Object obj, String token) throws Exception {
+        // Note: == is normally a bad idea but None is static in this case
+        if (obj == None) {
+            addMissing();
+            return;
+        }
+
+        if (type == UNTYPED)
+            setType(obj instanceof Double ? NUMERIC : NOMINAL);
+
+        if (type == NUMERIC) {
+            if (!(obj instanceof Double))
+                throw new Exception("type mismatch column " + title);
+
+            addDouble((Double) obj);
+        }
+        else {
+            if (obj instanceof Double)
+                throw new Exception("type mismatch column " + title);
+
+            addNominal(obj, token);
+        }
+    }
+
+    /**
+     * Adds a numeric value to the column.
+     * @param value Value
+     */
+    void addDouble(double value) {
+        if (size == doubles.length)
+            doubles = Arrays.copyOf(doubles, size * 2);
+
+        doubles[size++] = value;
+
+        stats.add(value);
+    }
+
+    /**
+     * Adds a nominal value to the column as its ordinal in the dictionary.
+     * @param obj   Nominal value
+     * @param token Field the value was parsed from
+     */
+    void addNominal(Object obj, String token) {
+        Integer ordinal = lookup.get(obj);
+
+        if (ordinal == null) {
+            ordinal = dictionary.size();
+
+            dictionary.add(obj);
+
+            tokens.add(token);
+
+            lookup.put(obj, ordinal);
+        }
+
+        if (size == ordinals.length)
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+
+        ordinals[size++] = ordinal;
+    }
+
+    /**
+     * Adds a missing value: NaN if numeric, -1 if nominal, or a placeholder until the type is known.
+     */
+    void addMissing() {
+        if (type == NUMERIC)
+            addDouble(Double.NaN);
+
+        else if (type == NOMINAL) {
+            if (size == ordinals.length)
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+
+            ordinals[size++] = -1;
+        }
+        else
+            size++;
+    }
+
+    /**
+     * Appends the values of another column with the same title, e.g., one parsed from a later chunk
+     * of the same file. Nominal ordinals are mapped into this column's dictionary.
+     * @param other Column
+     * @throws Exception if the column types do not match
+     */
+    void append(ColumnBuffer other) throws Exception {
+        if (other.type == UNTYPED) {
+            for (int k = 0; k < other.size; k++)
+                addMissing();
+
+            return;
+        }
+
+        if (type == UNTYPED)
+            setType(other.type);
+
+        if (type != other.type)
+            throw new Exception("type mismatch column " + title);
+
+        int total = size + other.size;
+
+        if (type == NUMERIC) {
+            if (total > doubles.length)
+                doubles = Arrays.copyOf(doubles, Math.max(total, size * 2));
+
+            System.arraycopy(other.doubles, 0, doubles, size, other.size);
+
+            stats.merge(other.stats);
+        }
+        else {
+            if (total > ordinals.length)
+                ordinals = Arrays.copyOf(ordinals, Math.max(total, size * 2));
+
+            int[] map = merge(other);
+
+            for (int k = 0; k < other.size; k++) {
+                int ordinal = other.ordinals[k];
+
+                ordinals[size + k] = ordinal < 0 ? -1 : map[ordinal];
+            }
+        }
+
+        size = total;
+    }
+
+    /**
+     * Merges the dictionary of another nominal column into this one in its order of first appearance.
+     * @param other Nominal column
+     * @return Ordinal in the other column -> ordinal in this column
+     */
+    int[] merge(ColumnBuffer other) {
+        int[] map = new int[other.dictionary.size()];
+
+        for (int k = 0; k < map.length; k++) {
+            Object obj = other.dictionary.get(k);
+
+            Integer ordinal = lookup.get(obj);
+
+            if (ordinal == null) {
+                ordinal = dictionary.size();
+
+                dictionary.add(obj);
+
+                tokens.add(other.tokens.get(k));
+
+                lookup.put(obj, ordinal);
+            }
+
+            map[k] = ordinal;
+        }
+
+        return map;
+    }
+
+    /**
+     * Reorders the values in the column.
+     * @param order Permutation where element k is the index of the value to put in position k
+     */
+    void reorder(int[] order) {
+        if (type == NUMERIC) {
+            double[] values = new double[size];
+
+            for (int k = 0; k < size; k++)
+                values[k] = doubles[order[k]];
+
+            doubles = values;
+        }
+        else if (type == NOMINAL) {
+            int[] values = new int[size];
+
+            for (int k = 0; k < size; k++)
+                values[k] = ordinals[order[k]];
+
+            ordinals = values;
+        }
+    }
+
+    /**
+     * Sets the column type and back-fills any values missing before the type was known.
+     * @param type Column type
+     */
+    void setType(int type) {
+        this.type = type;
+
+        int capacity = Math.max(CAPACITY, size * 2);
+
+        if (type == NUMERIC) {
+            doubles = new double[capacity];
+
+            Arrays.fill(doubles, 0, size, Double.NaN);
+
+            stats = new ColumnStats();
+        }
+        else {
+            ordinals = new int[capacity];
+
+            Arrays.fill(ordinals, 0, size, -1);
+
+            dictionary = new ArrayList<>();
+
+            tokens = new ArrayList<>();
+
+            lookup = new HashMap<>();
+        }
+    }
+}
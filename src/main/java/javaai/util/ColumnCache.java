@@ -0,0 +1,627 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import static javaai.util.Option.None;
+
+/**
+ * This class reads and writes a binary, column-oriented copy of a parsed CSV file.
+ * <p>The cache file sits next to the CSV file with the suffix ".cache". It holds, in little-endian order:
+ * a header -- magic number, version, header length, size and time stamp of the CSV file, row count and for
+ * each CSV column its type, title and, if nominal, the distinct fields in order of first appearance --
+ * followed by each column's raw values: doubles if numeric, int ordinals if nominal.</p>
+ * <p>Nominal fields are parsed again with the current parsers when the cache is read, so the cache is
+ * safe to share between ontologies that parse the same fields into different objects. Numeric columns
+ * are cached only if they were parsed by Parsers.parseNumeric, because no other parser can be checked
+ * for changes. The cache is only used if it is at least as new as the CSV file and records the same
+ * CSV file size and time stamp.</p>
+ * @author Ron.Coleman
+ */
+class ColumnCache {
+    /** Identifies a cache file */
+    final static int MAGIC = 0x4C4F434A;
+
+    /** Format version */
+    final static int VERSION = 1;
+
+    /** File suffix */
+    final static String SUFFIX = ".cache";
+
+    /**
+     * Gets the cache path for a CSV file.
+     * @param path CSV file path
+     * @return Cache file path
+     */
+    static Path getPath(String path) {
+        return Paths.get(path + SUFFIX);
+    }
+
+    /**
+     * Writes the cache for a CSV file. Failures are ignored as the cache is only an optimization.
+     * @param path    CSV file path
+     * @param parsers Parsers which parsed the columns
+     * @param columns Column buffers in file order, including "don't care" columns
+     */
+    static void write(String path, List<Function<String, Object>> parsers, List<ColumnBuffer> columns) {
+        if (columns.size() != parsers.size())
+            return;
+
+        for (int col = 0; col < columns.size(); col++) {
+            if (!isCacheable(parsers.get(col), columns.get(col).type))
+                return;
+        }
+
+        File source = new File(path);
+
+        Path cache = getPath(path);
+
+        Path tmp = Paths.get(cache + ".tmp");
+
+        try {
+            ByteBuffer header = getHeader(source, columns);
+
+            int rows = columns.isEmpty() ? 0 : columns.get(0).size;
+
+            try (FileChannel channel = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                write(channel, header);
+
+                ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+                for (ColumnBuffer column : columns) {
+                    for (int row = 0; row < rows && column.type != ColumnBuffer.UNTYPED; row++) {
+                        if (bytes.remaining() < Double.BYTES)
+                            write(channel, bytes);
+
+                        if (column.type == ColumnBuffer.NUMERIC)
+                            bytes.putDouble(column.doubles[row]);
+                        else
+                            bytes.putInt(column.ordinals[row]);
+                    }
+                }
+
+                write(channel, bytes);
+            }
+
+            // Readers never see a partial cache
+            Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (Exception e) {
+            if (Helper.DEBUG)
+                e.printStackTrace();
+
+            try {
+                Files.deleteIfExists(tmp);
+            }
+            catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * This class holds the header of a cache file as read with the current parsers.
+     */
+    static class Header {
+        /** Column buffers in file order with their types and dictionaries but no values */
+        final ArrayList<ColumnBuffer> columns = new ArrayList<>();
+
+        /** Ordinal in the cache -> ordinal in the dictionary, by column, null unless nominal */
+        final ArrayList<int[]> maps = new ArrayList<>();
+
+        /** Position of the values of each column in the file */
+        final ArrayList<Long> positions = new ArrayList<>();
+
+        /** Number of rows */
+        int rows;
+    }
+
+    /**
+     * Reads the cache for a CSV file.
+     * @param path    CSV file path
+     * @param parsers Parsers to interpret the columns
+     * @return Column buffers in file order, including "don't care" columns, or null if there's no valid cache
+     */
+    static List<ColumnBuffer> read(String path, List<Function<String, Object>> parsers) {
+        try (FileChannel channel = open(path)) {
+            Header header = channel == null ? null : readHeader(path, channel, parsers);
+
+            if (header == null)
+                return null;
+
+            int rows = header.rows;
+
+            // Read the values of each column
+            for (int col = 0; col < header.columns.size(); col++) {
+                ColumnBuffer column = header.columns.get(col);
+
+                column.size = rows;
+
+                if (column.type == ColumnBuffer.UNTYPED)
+                    continue;
+
+                int width = column.type == ColumnBuffer.NUMERIC ? Double.BYTES : Integer.BYTES;
+
+                MappedByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY,
+                        header.positions.get(col), (long) rows * width);
+                values.order(ByteOrder.LITTLE_ENDIAN);
+
+                if (column.type == ColumnBuffer.NUMERIC) {
+                    column.doubles = new double[rows];
+
+                    values.asDoubleBuffer().get(column.doubles);
+
+                    for (int row = 0; row < rows; row++)
+                        column.stats.add(column.doubles[row]);
+                }
+                else {
+                    int[] map = header.maps.get(col);
+
+                    column.ordinals = new int[rows];
+
+                    values.asIntBuffer().get(column.ordinals);
+
+                    for (int row = 0; row < rows; row++) {
+                        int ordinal = column.ordinals[row];
+
+                        column.ordinals[row] = ordinal < 0 ? -1 : map[ordinal];
+                    }
+                }
+            }
+
+            return header.columns;
+        }
+        catch (Exception e) {
+            if (Helper.DEBUG)
+                e.printStackTrace();
+
+            return null;
+        }
+    }
+
+    /**
+     * Opens the cache for a CSV file if it is at least as new as the file.
+     * @param path CSV file path
+     * @return File channel or null if there's no such cache
+     * @throws IOException
+     */
+    static FileChannel open(String path) throws IOException {
+        File source = new File(path);
+
+        File cache = getPath(path).toFile();
+
+        if (!cache.exists() || cache.lastModified() < source.lastModified())
+            return null;
+
+        return FileChannel.open(cache.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Reads the header of a cache file and parses the nominal fields again.
+     * @param path    CSV file path
+     * @param channel Cache file channel
+     * @param parsers Parsers to interpret the columns
+     * @return Header or null if the cache does not match the file or parsers
+     * @throws IOException
+     */
+    static Header readHeader(String path, FileChannel channel, List<Function<String, Object>> parsers)
+            throws IOException {
+        File source = new File(path);
+
+        ByteBuffer prefix = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        channel.read(prefix, 0);
+        prefix.flip();
+
+        if (prefix.remaining() < prefix.capacity() || prefix.getInt() != MAGIC || prefix.getInt() != VERSION)
+            return null;
+
+        int length = prefix.getInt();
+
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        bytes.position(prefix.capacity());
+
+        if (bytes.getLong() != source.length() || bytes.getLong() != source.lastModified())
+            return null;
+
+        Header header = new Header();
+
+        header.rows = bytes.getInt();
+
+        int cols = bytes.getInt();
+
+        if (cols != parsers.size())
+            return null;
+
+        long position = length;
+
+        for (int col = 0; col < cols; col++) {
+            int type = bytes.get();
+
+            ColumnBuffer column = new ColumnBuffer(getString(bytes));
+
+            Function<String, Object> parser = parsers.get(col);
+
+            if (!isCacheable(parser, type))
+                return null;
+
+            if (type != ColumnBuffer.UNTYPED)
+                column.setType(type);
+
+            int[] map = null;
+
+            // Parse the distinct fields again: fields which now parse to the same value share an ordinal
+            if (type == ColumnBuffer.NOMINAL) {
+                map = new int[bytes.getInt()];
+
+                for (int k = 0; k < map.length; k++) {
+                    String token = getString(bytes);
+
+                    Object obj = parser.apply(token);
+
+                    if (obj == None || obj instanceof Double)
+                        return null;
+
+                    Integer ordinal = column.lookup.get(obj);
+
+                    if (ordinal == null) {
+                        ordinal = column.dictionary.size();
+
+                        column.dictionary.add(obj);
+
+                        column.tokens.add(token);
+
+                        column.lookup.put(obj, ordinal);
+                    }
+
+                    map[k] = ordinal;
+                }
+            }
+
+            header.columns.add(column);
+
+            header.maps.add(map);
+
+            header.positions.add(position);
+
+            if (type == ColumnBuffer.NUMERIC)
+                position += (long) header.rows * Double.BYTES;
+
+            else if (type == ColumnBuffer.NOMINAL)
+                position += (long) header.rows * Integer.BYTES;
+        }
+
+        return header;
+    }
+
+    /**
+     * Builds the cache for a CSV file a chunk at a time, so the file may be larger than the heap.
+     * Each chunk is parsed into column buffers and its values spilled to a temporary file per column;
+     * the cache is then the header followed by the temporary files.
+     * @param path    CSV file path
+     * @param parsers Parsers to interpret the columns
+     * @param chunk   Approximate bytes of the CSV file to parse at once
+     * @throws Exception if the file can't be parsed or a column can't be cached
+     */
+    static void build(String path, List<Function<String, Object>> parsers, long chunk) throws Exception {
+        Path cache = getPath(path);
+
+        Path tmp = Paths.get(cache + ".tmp");
+
+        ArrayList<Path> spills = new ArrayList<>();
+
+        ArrayList<FileChannel> outs = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // Read the header
+            long from = CsvScanner.nextLine(channel, 0);
+
+            CsvScanner header = new CsvScanner(parsers);
+
+            header.scan(channel, 0, from);
+
+            if (header.columns == null)
+                throw new Exception("no header in " + path);
+
+            // Columns with types and dictionaries of the whole file but no values
+            List<ColumnBuffer> columns = header.columns;
+
+            int cols = columns.size();
+
+            for (int col = 0; col < cols; col++) {
+                spills.add(Paths.get(cache + ".tmp" + col));
+
+                outs.add(FileChannel.open(spills.get(col),
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+            }
+
+            ByteBuffer bytes = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+            // Missing values by column before its type is known
+            int[] pending = new int[cols];
+
+            int rows = 0;
+
+            int line = header.lines;
+
+            while (from < size) {
+                long to = from + chunk >= size ? size : CsvScanner.nextLine(channel, from + chunk - 1);
+
+                CsvScanner scanner = new CsvScanner(parsers, columns);
+
+                try {
+                    scanner.scan(channel, from, to);
+                }
+                catch (Exception e) {
+                    if (scanner.mismatch)
+                        throw new Exception("fields mismatch row " + (line + scanner.lines - 1));
+
+                    throw e;
+                }
+
+                for (int col = 0; col < cols; col++) {
+                    ColumnBuffer column = columns.get(col);
+
+                    ColumnBuffer part = scanner.columns.get(col);
+
+                    if (part.type == ColumnBuffer.UNTYPED) {
+                        if (column.type == ColumnBuffer.UNTYPED)
+                            pending[col] += part.size;
+                        else
+                            spillMissing(outs.get(col), bytes, column.type, part.size);
+
+                        continue;
+                    }
+
+                    if (column.type == ColumnBuffer.UNTYPED) {
+                        if (!isCacheable(parsers.get(col), part.type))
+                            throw new Exception("column " + column.title + " can't be cached");
+
+                        column.setType(part.type);
+
+                        spillMissing(outs.get(col), bytes, column.type, pending[col]);
+                    }
+
+                    if (part.type != column.type)
+                        throw new Exception("type mismatch column " + column.title);
+
+                    if (part.type == ColumnBuffer.NUMERIC) {
+                        for (int row = 0; row < part.size; row++) {
+                            if (bytes.remaining() < Double.BYTES)
+                                write(outs.get(col), bytes);
+
+                            bytes.putDouble(part.doubles[row]);
+                        }
+                    }
+                    else {
+                        int[] map = column.merge(part);
+
+                        for (int row = 0; row < part.size; row++) {
+                            if (bytes.remaining() < Integer.BYTES)
+                                write(outs.get(col), bytes);
+
+                            int ordinal = part.ordinals[row];
+
+                            bytes.putInt(ordinal < 0 ? -1 : map[ordinal]);
+                        }
+                    }
+
+                    write(outs.get(col), bytes);
+                }
+
+                rows += scanner.columns.isEmpty() ? 0 : scanner.columns.get(0).size;
+
+                line += scanner.lines;
+
+                from = to;
+            }
+
+            for (int col = 0; col < cols; col++) {
+                if (!isCacheable(parsers.get(col), columns.get(col).type))
+                    throw new Exception("column " + columns.get(col).title + " can't be cached");
+
+                columns.get(col).size = rows;
+
+                outs.get(col).close();
+            }
+
+            // Write the header then the values of each column
+            try (FileChannel out = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                write(out, getHeader(new File(path), columns));
+
+                for (Path spill : spills) {
+                    try (FileChannel in = FileChannel.open(spill, StandardOpenOption.READ)) {
+                        long position = 0;
+
+                        while (position < in.size())
+                            position += in.transferTo(position, in.size() - position, out);
+                    }
+                }
+            }
+
+            Files.move(tmp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            for (FileChannel out : outs)
+                out.close();
+
+            for (Path spill : spills)
+                Files.deleteIfExists(spill);
+
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Writes missing values to a column's temporary file.
+     * @param out   Temporary file
+     * @param bytes Buffer
+     * @param type  Column type
+     * @param count Number of missing values
+     * @throws IOException
+     */
+    static void spillMissing(FileChannel out, ByteBuffer bytes, int type, int count) throws IOException {
+        for (int k = 0; k < count; k++) {
+            if (bytes.remaining() < Double.BYTES)
+                write(out, bytes);
+
+            if (type == ColumnBuffer.NUMERIC)
+                bytes.putDouble(Double.NaN);
+            else
+                bytes.putInt(-1);
+        }
+
+        write(out, bytes);
+    }
+
+    /**
+     * Tests whether a column can be cached.
+     * @param parser Parser of the column
+     * @param type   Type of the parsed column
+     * @return True if cacheable
+     */
+    static boolean isCacheable(Function<String, Object> parser, int type) {
+        if (parser == Parsers.parseNone)
+            return type == ColumnBuffer.UNTYPED;
+
+        if (parser == Parsers.parseNumeric)
+            return type != ColumnBuffer.NOMINAL;
+
+        return type == ColumnBuffer.NOMINAL;
+    }
+
+    /**
+     * Makes the header.
+     * @param source  CSV file
+     * @param columns Column buffers
+     * @return Header ready to write
+     */
+    static ByteBuffer getHeader(File source, List<ColumnBuffer> columns) {
+        ArrayList<byte[]> strings = new ArrayList<>();
+
+        int length = 3 * Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+
+        for (ColumnBuffer column : columns) {
+            byte[] title = column.title.getBytes(StandardCharsets.UTF_8);
+
+            strings.add(title);
+
+            length += 1 + Integer.BYTES + title.length;
+
+            if (column.type == ColumnBuffer.NOMINAL) {
+                length += Integer.BYTES;
+
+                for (String token : column.tokens) {
+                    byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+
+                    strings.add(bytes);
+
+                    length += Integer.BYTES + bytes.length;
+                }
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(length);
+        header.putLong(source.length());
+        header.putLong(source.lastModified());
+        header.putInt(columns.isEmpty() ? 0 : columns.get(0).size);
+        header.putInt(columns.size());
+
+        int next = 0;
+
+        for (ColumnBuffer column : columns) {
+            header.put((byte) column.type);
+
+            putString(header, strings.get(next++));
+
+            if (column.type == ColumnBuffer.NOMINAL) {
+                header.putInt(column.tokens.size());
+
+                for (int k = 0; k < column.tokens.size(); k++)
+                    putString(header, strings.get(next++));
+            }
+        }
+
+        return header;
+    }
+
+    /**
+     * Puts a length-prefixed string.
+     * @param bytes  Destination
+     * @param string UTF-8 encoded string
+     */
+    static void putString(ByteBuffer bytes, byte[] string) {
+        bytes.putInt(string.length);
+        bytes.put(string);
+    }
+
+    /**
+     * Gets a length-prefixed string.
+     * @param bytes Source
+     * @return String
+     */
+    static String getString(ByteBuffer bytes) {
+        byte[] string = new byte[bytes.getInt()];
+
+        bytes.get(string);
+
+        return new String(string, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes and clears a buffer.
+     * @param channel File channel
+     * @param bytes   Buffer
+     * @throws IOException
+     */
+    static void write(FileChannel channel, ByteBuffer bytes) throws IOException {
+        bytes.flip();
+
+        while (bytes.hasRemaining())
+            channel.write(bytes);
+
+        bytes.clear();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+/**
+ * This class accumulates the statistics of a numeric column in one pass: count, min, max, mean
+ * and variance, the last two with Welford's algorithm so they stay accurate over millions of rows.
+ * Statistics of chunks of a column combine with Chan's formula, so a parallel load needs no second
+ * pass. Missing values, i.e., NaN, are not counted.
+ * @author Ron.Coleman
+ */
+public class ColumnStats {
+    /** Number of values */
+    long count = 0;
+
+    /** Smallest value */
+    double min = Double.NaN;
+
+    /** Largest value */
+    double max = Double.NaN;
+
+    /** Running mean */
+    double mean = 0;
+
+    /** Running sum of squared differences from the mean */
+    double m2 = 0;
+
+    /**
+     * Constructor
+     */
+    ColumnStats() {
+    }
+
+    /**
+     * Constructor
+     * @param count Number of values
+     * @param min   Smallest value
+     * @param max   Largest value
+     * @param mean  Mean
+     * @param m2    Sum of squared differences from the mean
+     */
+    ColumnStats(long count, double min, double max, double mean, double m2) {
+        this.count = count;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.m2 = m2;
+    }
+
+    /**
+     * Adds a value.
+     * @param value Value or NaN if missing
+     */
+    void add(double value) {
+        if (Double.isNaN(value))
+            return;
+
+        if (count++ == 0) {
+            min = max = value;
+        }
+        else if (value < min)
+            min = value;
+
+        else if (value > max)
+            max = value;
+
+        double delta = value - mean;
+
+        mean += delta / count;
+
+        m2 += delta * (value - mean);
+    }
+
+    /**
+     * Merges the statistics of values which follow these ones.
+     * @param other Statistics
+     */
+    void merge(ColumnStats other) {
+        if (other.count == 0)
+            return;
+
+        if (count == 0) {
+            count = other.count;
+            min = other.min;
+            max = other.max;
+            mean = other.mean;
+            m2 = other.m2;
+            return;
+        }
+
+        long n = count + other.count;
+
+        double delta = other.mean - mean;
+
+        mean += delta * other.count / n;
+
+        m2 += other.m2 + delta * delta * ((double) count * other.count / n);
+
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        count = n;
+    }
+
+    /**
+     * Gets the number of values, not including missing values.
+     * @return Count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the smallest value.
+     * @return Min or NaN if there are no values
+     */
+    public double getMin() {
+        return min;
+    }
+
+    /**
+     * Gets the largest value.
+     * @return Max or NaN if there are no values
+     */
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the mean.
+     * @return Mean or NaN if there are no values
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Gets the population variance.
+     * @return Variance or NaN if there are no values
+     */
+    public double getVariance() {
+        return count == 0 ? Double.NaN : m2 / count;
+    }
+
+    /**
+     * Gets the population standard deviation.
+     * @return Standard deviation or NaN if there are no values
+     */
+    public double getStdev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Gets the statistics as a string.
+     * @return String
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d min=%.4f max=%.4f mean=%.4f stdev=%.4f",
+                count, getMin(), getMax(), getMean(), getStdev());
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import org.encog.ml.data.MLData;
+import org.encog.ml.data.MLDataPair;
+import org.encog.ml.data.MLDataSet;
+import org.encog.ml.data.basic.BasicMLDataPair;
+import org.encog.util.arrayutil.NormalizationAction;
+import org.encog.util.arrayutil.NormalizedField;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is an Encog data set which reads its rows straight from the columns of a Dataset.
+ * Numeric columns may be normalized and nominal columns encoded one-of-n or equilateral as the rows are
+ * read, so the data is never copied into double[][] arrays or one BasicMLDataPair per row. Encog
+ * trainers read the rows with getRecord into a pair they reuse.
+ * <p>The data set is read-only. Add the input and ideal columns first; after that it may be shared by
+ * trainers on several threads since the Dataset does not change.</p>
+ * @author Ron.Coleman
+ */
+public class ColumnarMLDataSet implements MLDataSet {
+    /**
+     * This class describes how to read one column into the activations.
+     */
+    static class Field {
+        /** Column in the data set */
+        final int col;
+
+        /** Normalization of a numeric column or null for the raw values */
+        final NormalizedField normalizer;
+
+        /** Encoder of a nominal column or null if numeric */
+        final NominalEncoder encoder;
+
+        /**
+         * Constructor
+         * @param col        Column
+         * @param normalizer Normalization or null
+         * @param encoder    Encoder or null
+         */
+        Field(int col, NormalizedField normalizer, NominalEncoder encoder) {
+            this.col = col;
+            this.normalizer = normalizer;
+            this.encoder = encoder;
+        }
+
+        /**
+         * Gets the number of activations.
+         * @return Width
+         */
+        int getWidth() {
+            return encoder == null ? 1 : encoder.getWidth();
+        }
+    }
+
+    /** Data set with the columns */
+    protected final Dataset dataset;
+
+    /** Input columns */
+    protected final ArrayList<Field> inputs = new ArrayList<>();
+
+    /** Ideal columns */
+    protected final ArrayList<Field> ideals = new ArrayList<>();
+
+    /** Number of input activations */
+    protected int inputSize = 0;
+
+    /** Number of ideal activations */
+    protected int idealSize = 0;
+
+    /**
+     * Constructor
+     * @param dataset Data set
+     */
+    public ColumnarMLDataSet(Dataset dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     * Adds a numeric input column as is.
+     * @param col Numeric column
+     */
+    public void addInput(int col) {
+        addInput(new Field(col, null, null));
+    }
+
+    /**
+     * Adds a numeric input column, normalized.
+     * @param col        Numeric column
+     * @param normalizer Normalization
+     */
+    public void addInput(int col, NormalizedField normalizer) {
+        addInput(new Field(col, normalizer, null));
+    }
+
+    /**
+     * Adds a nominal input column, encoded.
+     * @param col     Nominal column
+     * @param encoder Encoder
+     */
+    public void addInput(int col, NominalEncoder encoder) {
+        addInput(new Field(col, null, encoder));
+    }
+
+    /**
+     * Adds a numeric ideal column as is.
+     * @param col Numeric column
+     */
+    public void addIdeal(int col) {
+        addIdeal(new Field(col, null, null));
+    }
+
+    /**
+     * Adds a numeric ideal column, normalized.
+     * @param col        Numeric column
+     * @param normalizer Normalization
+     */
+    public void addIdeal(int col, NormalizedField normalizer) {
+        addIdeal(new Field(col, normalizer, null));
+    }
+
+    /**
+     * Adds a nominal ideal column, encoded.
+     * @param col     Nominal column
+     * @param encoder Encoder
+     */
+    public void addIdeal(int col, NominalEncoder encoder) {
+        addIdeal(new Field(col, null, encoder));
+    }
+
+    /**
+     * Adds an input field.
+     * @param field Field
+     */
+    protected void addInput(Field field) {
+        inputs.add(field);
+
+        inputSize += field.getWidth();
+    }
+
+    /**
+     * Adds an ideal field.
+     * @param field Field
+     */
+    protected void addIdeal(Field field) {
+        ideals.add(field);
+
+        idealSize += field.getWidth();
+    }
+
+    /**
+     * Gets a normalization of a numeric column from its actual range, ignoring missing values.
+     * @param dataset Data set
+     * @param col     Numeric column
+     * @param high    Normalized high, e.g., 1
+     * @param low     Normalized low, e.g., -1 for TANH or 0 for sigmoid
+     * @return Normalization
+     */
+    public static NormalizedField getNormalizer(Dataset dataset, int col, double high, double low) {
+        ColumnStats stats = dataset.getStats(col);
+
+        return new NormalizedField(NormalizationAction.Normalize, dataset.getTitle(col),
+                stats.getMax(), stats.getMin(), high, low);
+    }
+
+    /**
+     * Reads the fields of a row into activations.
+     * @param row    Row
+     * @param fields Fields
+     * @param out    Activations
+     */
+    protected void read(int row, ArrayList<Field> fields, double[] out) {
+        int offset = 0;
+
+        for (int k = 0; k < fields.size(); k++) {
+            Field field = fields.get(k);
+
+            if (field.encoder != null) {
+                field.encoder.encode(dataset.ordinals[field.col][row], out, offset);
+
+                offset += field.encoder.getWidth();
+            }
+            else {
+                double value = dataset.numerics[field.col][row];
+
+                out[offset++] = field.normalizer == null ? value : field.normalizer.normalize(value);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of ideal activations.
+     * @return Ideal size
+     */
+    @Override
+    public int getIdealSize() {
+        return idealSize;
+    }
+
+    /**
+     * Gets the number of input activations.
+     * @return Input size
+     */
+    @Override
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Tests whether the data set has ideals.
+     * @return True if supervised
+     */
+    @Override
+    public boolean isSupervised() {
+        return idealSize > 0;
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return Record count
+     */
+    @Override
+    public long getRecordCount() {
+        return dataset.rowCount;
+    }
+
+    /**
+     * Reads a row into a pair without allocating.
+     * @param index Row
+     * @param pair  Pair with arrays of the input and ideal sizes
+     */
+    @Override
+    public void getRecord(long index, MLDataPair pair) {
+        int row = (int) index;
+
+        read(row, inputs, pair.getInputArray());
+
+        if (idealSize > 0)
+            read(row, ideals, pair.getIdealArray());
+    }
+
+    /**
+     * Opens another view of the same columns, e.g., for another training thread.
+     * @return Data set
+     */
+    @Override
+    public MLDataSet openAdditional() {
+        ColumnarMLDataSet view = new ColumnarMLDataSet(dataset);
+
+        for (Field field : inputs)
+            view.addInput(field);
+
+        for (Field field : ideals)
+            view.addIdeal(field);
+
+        return view;
+    }
+
+    /**
+     * Not supported: the data set is read-only.
+     * @param data Data
+     */
+    @Override
+    public void add(MLData data) {
+        throw new UnsupportedOperationException("read-only data set");
+    }
+
+    /**
+     * Not supported: the data set is read-only.
+     * @param input Input
+     * @param ideal Ideal
+     */
+    @Override
+    public void add(MLData input, MLData ideal) {
+        throw new UnsupportedOperationException("read-only data set");
+    }
+
+    /**
+     * Not supported: the data set is read-only.
+     * @param pair Pair
+     */
+    @Override
+    public void add(MLDataPair pair) {
+        throw new UnsupportedOperationException("read-only data set");
+    }
+
+    /**
+     * Closes the data set which holds nothing to release.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Gets the number of rows.
+     * @return Size
+     */
+    @Override
+    public int size() {
+        return dataset.rowCount;
+    }
+
+    /**
+     * Gets a row as a new pair.
+     * @param index Row
+     * @return Pair
+     */
+    @Override
+    public MLDataPair get(int index) {
+        MLDataPair pair = BasicMLDataPair.createPair(inputSize, idealSize);
+
+        getRecord(index, pair);
+
+        return pair;
+    }
+
+    /**
+     * Iterates over the rows as new pairs, since callers may keep them.
+     * @return Iterator
+     */
+    @Override
+    public Iterator<MLDataPair> iterator() {
+        return new Iterator<MLDataPair>() {
+            int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return row < dataset.rowCount;
+            }
+
+            @Override
+            public MLDataPair next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                return get(row++);
+            }
+        };
+    }
+}
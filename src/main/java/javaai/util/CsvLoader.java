@@ -0,0 +1,280 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+/**
+ * This class loads a CSV file into a typed, column-oriented data set.
+ * Assumes first row is the header row. Columns which parse entirely to None are dropped.
+ * <p>The file is memory-mapped and parsed straight from its bytes into column buffers, so it is never
+ * buffered on the heap. With a parallelism greater than one, the rows after the header are split into
+ * chunks at newline boundaries, the chunks are parsed on a fork-join pool and their column buffers are
+ * appended in file order.</p>
+ * <p>With caching on, the parsed columns are also written to a binary cache next to the file which
+ * later loads read instead of the file, as long as the file does not change. See ColumnCache.</p>
+ * <p>Numeric columns gather their statistics as they are parsed and, with a normalizer, are normalized
+ * in place before the data set is made.</p>
+ * @author Ron.Coleman
+ */
+public class CsvLoader {
+    /** Smallest chunk of the file worth parsing on its own */
+    final static long MIN_CHUNK = 1L << 20;
+
+    /** Chunks per thread so threads which finish early can take more work */
+    final static int CHUNKS_PER_THREAD = 4;
+
+    /** Parsers to interpret the columns */
+    protected final List<Function<String, Object>> parsers;
+
+    /** Random number generator to randomize the rows or null to keep file order */
+    protected Random ran = null;
+
+    /** Number of threads parsing the file */
+    protected int parallelism = 1;
+
+    /** True to read and write the binary column cache */
+    protected boolean cache = false;
+
+    /** Normalizer of the numeric columns or null to keep the values as parsed */
+    protected Normalizer normalizer = null;
+
+    /**
+     * Constructor
+     * @param parsers Parsers to interpret the columns
+     */
+    public CsvLoader(List<Function<String, Object>> parsers) {
+        this.parsers = parsers;
+    }
+
+    /**
+     * Sets the random number generator to randomize the rows.
+     * @param ran Random number generator or null to keep the rows in file order
+     */
+    public void setRandom(Random ran) {
+        this.ran = ran;
+    }
+
+    /**
+     * Sets the number of threads parsing the file.
+     * @param parallelism Number of threads, 1 to parse on the calling thread
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Sets whether to read and write the binary column cache next to the file.
+     * @param cache True to use the cache
+     */
+    public void setCache(boolean cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Sets the normalizer to apply to the numeric columns as they are loaded.
+     * @param normalizer Normalizer or null to keep the values as parsed
+     */
+    public void setNormalizer(Normalizer normalizer) {
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * Loads a CSV file.
+     * @param path Path in system to file
+     * @return Data set
+     * @throws Exception
+     */
+    public Dataset load(String path) throws Exception {
+        List<ColumnBuffer> columns = cache ? ColumnCache.read(path, parsers) : null;
+
+        if (columns == null) {
+            try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+                if (parallelism > 1)
+                    columns = scanParallel(channel);
+                else
+                    columns = scan(channel, 0, channel.size());
+            }
+
+            // Cache the rows in file order
+            if (cache)
+                ColumnCache.write(path, parsers, columns);
+        }
+
+        // Normalize in place, after caching the values as parsed
+        if (normalizer != null) {
+            for (ColumnBuffer column : columns)
+                normalizer.apply(column);
+        }
+
+        // Shuffle the rows, not including the header
+        if (ran != null && !columns.isEmpty()) {
+            int[] order = permute(columns.get(0).size, ran);
+
+            for (ColumnBuffer column : columns)
+                column.reorder(order);
+        }
+
+        return new Dataset(columns);
+    }
+
+    /**
+     * Scans a file on the calling thread.
+     * @param channel File channel
+     * @param from    Position of the first line
+     * @param to      Position after the last line
+     * @return Column buffers
+     * @throws Exception
+     */
+    protected List<ColumnBuffer> scan(FileChannel channel, long from, long to) throws Exception {
+        CsvScanner scanner = new CsvScanner(parsers);
+
+        scanner.scan(channel, from, to);
+
+        return scanner.columns == null ? new ArrayList<>() : scanner.columns;
+    }
+
+    /**
+     * Scans a file in chunks on a fork-join pool.
+     * @param channel File channel
+     * @return Column buffers
+     * @throws Exception
+     */
+    protected List<ColumnBuffer> scanParallel(FileChannel channel) throws Exception {
+        long size = channel.size();
+
+        // Read the header on the calling thread
+        long body = CsvScanner.nextLine(channel, 0);
+
+        CsvScanner header = new CsvScanner(parsers);
+
+        header.scan(channel, 0, body);
+
+        // Without a header in the first line, i.e., an empty file or a first line of only commas,
+        // which has no fields and is skipped as an empty row, parse as one chunk so the header is the
+        // first row with fields as in a serial scan. An empty first line is one field, so it is the
+        // header or a fields mismatch like in a serial scan.
+        if (header.columns == null)
+            return scan(channel, 0, size);
+
+        // Split the rest of the file at newline boundaries
+        int count = (int) Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, (size - body) / MIN_CHUNK));
+
+        ArrayList<Long> bounds = new ArrayList<>();
+        bounds.add(body);
+
+        for (int k = 1; k < count; k++) {
+            long bound = CsvScanner.nextLine(channel, body + (size - body) * k / count - 1);
+
+            if (bound > bounds.get(bounds.size() - 1) && bound < size)
+                bounds.add(bound);
+        }
+
+        bounds.add(size);
+
+        // Parse the chunks
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        ArrayList<ForkJoinTask<CsvScanner>> tasks = new ArrayList<>();
+
+        try {
+            for (int k = 0; k < bounds.size() - 1; k++) {
+                final long from = bounds.get(k);
+                final long to = bounds.get(k + 1);
+
+                tasks.add(pool.submit(() -> {
+                    CsvScanner scanner = new CsvScanner(parsers, header.columns);
+
+                    try {
+                        scanner.scan(channel, from, to);
+                    }
+                    catch (Exception e) {
+                        scanner.failure = e;
+                    }
+
+                    return scanner;
+                }));
+            }
+
+            // Append the chunks in file order
+            int row = header.lines;
+
+            List<ColumnBuffer> columns = header.columns;
+
+            for (ForkJoinTask<CsvScanner> task : tasks) {
+                CsvScanner scanner = task.join();
+
+                // Report the first failure in the file as the single-threaded loader would
+                if (scanner.failure != null) {
+                    if (scanner.mismatch)
+                        throw new Exception("fields mismatch row " + (row + scanner.lines - 1));
+
+                    throw scanner.failure;
+                }
+
+                for (int col = 0; col < columns.size(); col++)
+                    columns.get(col).append(scanner.columns.get(col));
+
+                row += scanner.lines;
+            }
+
+            return columns;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Gets a random permutation of row indices.
+     * It draws the same random numbers as Collections.shuffle so rows come out in the same order as
+     * a shuffled buffer of lines would.
+     * @param n   Number of rows
+     * @param ran Random number generator
+     * @return Permutation where element k is the row to put in position k
+     */
+    static int[] permute(int n, Random ran) {
+        int[] order = new int[n];
+
+        for (int k = 0; k < n; k++)
+            order[k] = k;
+
+        for (int k = n; k > 1; k--) {
+            int j = ran.nextInt(k);
+
+            int tmp = order[k - 1];
+            order[k - 1] = order[j];
+            order[j] = tmp;
+        }
+
+        return order;
+    }
+}
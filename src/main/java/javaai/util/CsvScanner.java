@@ -0,0 +1,425 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * This class parses a memory-mapped CSV file straight into column buffers.
+ * It copies the mapped bytes a block at a time into one reusable array and scans them for commas
+ * and newlines: numeric fields are parsed from the bytes, "don't care" fields are skipped, and
+ * nominal fields are looked up in a small cache of the bytes seen before, so most fields never
+ * become Strings and parsing makes no garbage per field.
+ * @author Ron.Coleman
+ */
+class CsvScanner {
+    /** Largest region of the file mapped at once */
+    final static long WINDOW = 1L << 30;
+
+    /** Initial size of the block of bytes being scanned */
+    final static int BLOCK_SIZE = 1 << 16;
+
+    /** Most distinct values cached per nominal column */
+    final static int CACHE_SIZE = 64;
+
+    /** Parsers to interpret the columns */
+    final List<Function<String, Object>> parsers;
+
+    /** Parsers by column as an array for quick access */
+    final Function<String, Object>[] functions;
+
+    /** Column buffers or null until the header is read */
+    ArrayList<ColumnBuffer> columns = null;
+
+    /** Column buffers as an array for quick access */
+    ColumnBuffer[] buffers = null;
+
+    /** Number of lines scanned, including the header and empty lines */
+    int lines = 0;
+
+    /** Exception which stopped the scan, if any, when scanning a chunk */
+    Exception failure = null;
+
+    /** True if the scan stopped on a fields mismatch in the last line scanned */
+    boolean mismatch = false;
+
+    /** Field boundaries in the current line */
+    int[] starts;
+    int[] ends;
+
+    /** Cached field bytes and parsed values by column */
+    byte[][][] keys;
+    Object[][] values;
+    int[] cached;
+
+    /** Block of bytes being scanned */
+    byte[] block = new byte[BLOCK_SIZE];
+
+    /** File being scanned */
+    FileChannel channel;
+
+    /** Region of the file currently mapped */
+    MappedByteBuffer buffer = null;
+
+    /** Next position in the file to map and end of the region to scan */
+    long position;
+    long end;
+
+    /**
+     * Constructor
+     * @param parsers Parsers to interpret the columns
+     */
+    CsvScanner(List<Function<String, Object>> parsers) {
+        this.parsers = parsers;
+
+        // Generic arrays can't be created, but every element comes from the typed list
+        @SuppressWarnings("unchecked")
+        Function<String, Object>[] functions = (Function<String, Object>[]) parsers.toArray(new Function<?, ?>[0]);
+
+        this.functions = functions;
+
+        int size = parsers.size();
+
+        starts = new int[size + 1];
+        ends = new int[size + 1];
+
+        keys = new byte[size][CACHE_SIZE][];
+        values = new Object[size][CACHE_SIZE];
+        cached = new int[size];
+    }
+
+    /**
+     * Constructor for scanning a chunk of the file after the header.
+     * @param parsers Parsers to interpret the columns
+     * @param titles  Columns in the header
+     */
+    CsvScanner(List<Function<String, Object>> parsers, List<ColumnBuffer> titles) {
+        this(parsers);
+
+        columns = new ArrayList<>();
+
+        for (ColumnBuffer title : titles)
+            columns.add(new ColumnBuffer(title.title));
+
+        buffers = columns.toArray(new ColumnBuffer[0]);
+    }
+
+    /**
+     * Scans a region of the file.
+     * @param channel File channel
+     * @param from    Position of the first line, inclusive
+     * @param to      Position after the last line, exclusive
+     * @throws Exception
+     */
+    void scan(FileChannel channel, long from, long to) throws Exception {
+        this.channel = channel;
+        this.position = from;
+        this.end = to;
+        this.buffer = null;
+
+        // Start of the current line and number of bytes in the block
+        int start = 0;
+        int filled = 0;
+
+        int k = 0;
+
+        while (true) {
+            // Find the end of the line
+            while (k < filled && block[k] != '\n')
+                k++;
+
+            if (k < filled) {
+                scanLine(start, k);
+
+                start = ++k;
+
+                continue;
+            }
+
+            // Move the partial line to the front of the block and refill it
+            int partial = filled - start;
+
+            if (partial == block.length)
+                block = Arrays.copyOf(block, block.length * 2);
+
+            System.arraycopy(block, start, block, 0, partial);
+
+            k = filled = partial;
+            start = 0;
+
+            int n = read(block, filled, block.length - filled);
+
+            if (n < 0)
+                break;
+
+            filled += n;
+        }
+
+        // Last line may not end with a newline
+        if (start < filled)
+            scanLine(start, filled);
+    }
+
+    /**
+     * Finds the start of the line after a position.
+     * @param channel  File channel
+     * @param position Position in the file
+     * @return Position after the first newline at or after the position or the file size if there's none
+     * @throws IOException
+     */
+    static long nextLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(BLOCK_SIZE);
+
+        while (true) {
+            bytes.clear();
+
+            int n = channel.read(bytes, position);
+
+            if (n < 0)
+                return channel.size();
+
+            for (int k = 0; k < n; k++) {
+                if (bytes.get(k) == '\n')
+                    return position + k + 1;
+            }
+
+            position += n;
+        }
+    }
+
+    /**
+     * Reads bytes from the mapped file, mapping the next window as needed.
+     * @param bytes  Destination
+     * @param offset Offset in destination
+     * @param length Most bytes to read
+     * @return Number of bytes read or -1 at the end of the region
+     * @throws IOException
+     */
+    int read(byte[] bytes, int offset, int length) throws IOException {
+        while (buffer == null || !buffer.hasRemaining()) {
+            if (position >= end)
+                return -1;
+
+            long size = Math.min(WINDOW, end - position);
+
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+
+            position += size;
+        }
+
+        int n = Math.min(length, buffer.remaining());
+
+        buffer.get(bytes, offset, n);
+
+        return n;
+    }
+
+    /**
+     * Scans one line.
+     * @param from Start of the line, inclusive
+     * @param to   End of the line, exclusive, not including the newline
+     * @throws Exception
+     */
+    void scanLine(int from, int to) throws Exception {
+        int row = lines++;
+
+        // Tolerate Windows line ends
+        if (to > from && block[to - 1] == '\r')
+            to--;
+
+        int count = split(from, to);
+
+        // Handle empty rows
+        if (count == 0)
+            return;
+
+        // Validate fields and ontology length match
+        if (count != parsers.size()) {
+            mismatch = true;
+
+            throw new Exception("fields mismatch row " + row);
+        }
+
+        // Assumes row zero is a header row
+        if (columns == null) {
+            columns = new ArrayList<>();
+
+            for (int col = 0; col < count; col++)
+                columns.add(new ColumnBuffer(decode(starts[col], ends[col])));
+
+            buffers = columns.toArray(new ColumnBuffer[0]);
+
+            return;
+        }
+
+        for (int col = 0; col < count; col++)
+            scanField(col, starts[col], ends[col]);
+    }
+
+    /**
+     * Finds the field boundaries in a line the same way String.split(",") does, that is,
+     * trailing empty fields are dropped.
+     * @param from Start of the line, inclusive
+     * @param to   End of the line, exclusive
+     * @return Number of fields
+     */
+    int split(int from, int to) {
+        // An empty line is one empty field
+        if (from == to) {
+            starts[0] = ends[0] = from;
+            return 1;
+        }
+
+        byte[] bytes = block;
+
+        int count = 0;
+        int fields = 0;
+        int start = from;
+
+        for (int k = from; ; k++) {
+            // Find the end of the field
+            while (k < to && bytes[k] != ',')
+                k++;
+
+            // More fields than expected are only counted
+            if (fields < starts.length) {
+                starts[fields] = start;
+                ends[fields] = k;
+            }
+
+            fields++;
+
+            if (k > start)
+                count = fields;
+
+            if (k == to)
+                break;
+
+            start = k + 1;
+        }
+
+        return count;
+    }
+
+    /**
+     * Parses a field into its column.
+     * @param col  Column
+     * @param from Start of the field, inclusive
+     * @param to   End of the field, exclusive
+     * @throws Exception
+     */
+    void scanField(int col, int from, int to) throws Exception {
+        Function<String, Object> parser = functions[col];
+
+        ColumnBuffer column = buffers[col];
+
+        if (parser == Parsers.parseNone) {
+            column.addMissing();
+            return;
+        }
+
+        // Trim the field
+        while (from < to && (block[from] & 0xff) <= ' ')
+            from++;
+
+        while (to > from && (block[to - 1] & 0xff) <= ' ')
+            to--;
+
+        if (parser == Parsers.parseNumeric && column.type != ColumnBuffer.NOMINAL) {
+            double value = Parsers.parseDouble(block, from, to);
+
+            if (!Double.isNaN(value)) {
+                if (column.type == ColumnBuffer.UNTYPED)
+                    column.setType(ColumnBuffer.NUMERIC);
+
+                column.addDouble(value);
+                return;
+            }
+        }
+        else {
+            // Look for the same bytes among the values parsed before
+            byte[][] seen = keys[col];
+
+            for (int k = 0; k < cached[col]; k++) {
+                if (matches(seen[k], from, to)) {
+                    column.add(values[col][k], null);
+                    return;
+                }
+            }
+        }
+
+        String token = decode(from, to);
+
+        Object obj = parser.apply(token);
+
+        if (parser != Parsers.parseNumeric && cached[col] < CACHE_SIZE) {
+            byte[] key = new byte[to - from];
+
+            for (int k = 0; k < key.length; k++)
+                key[k] = block[from + k];
+
+            keys[col][cached[col]] = key;
+            values[col][cached[col]] = obj;
+            cached[col]++;
+        }
+
+        column.add(obj, token);
+    }
+
+    /**
+     * Tests whether a field has the same bytes as a key.
+     * @param key  Key
+     * @param from Start of the field, inclusive
+     * @param to   End of the field, exclusive
+     * @return True if the bytes match
+     */
+    boolean matches(byte[] key, int from, int to) {
+        if (key.length != to - from)
+            return false;
+
+        for (int k = 0; k < key.length; k++) {
+            if (key[k] != block[from + k])
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Decodes a field as a String.
+     * @param from Start of the field, inclusive
+     * @param to   End of the field, exclusive
+     * @return String
+     */
+    String decode(int from, int to) {
+        return new String(block, from, to - from, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * This class writes each report of {@link Metrics} as a row of a CSV file with the seconds since
+ * the start first and values not known, i.e., NaN, left empty. The columns are the names of the first
+ * report, so instruments should be made before the metrics start; values under names added later are
+ * left out.
+ * @author Ron.Coleman
+ */
+public class CsvSink implements MetricsSink {
+    /** CSV file */
+    protected final BufferedWriter writer;
+
+    /** Columns after the time or null until the first report */
+    protected ArrayList<String> columns = null;
+
+    /**
+     * Constructor
+     * @param path CSV file path, overwritten
+     * @throws IOException
+     */
+    public CsvSink(String path) throws IOException {
+        writer = new BufferedWriter(new FileWriter(path));
+    }
+
+    @Override
+    public void report(long millis, Map<String, Double> values) throws IOException {
+        if (columns == null) {
+            columns = new ArrayList<>(values.keySet());
+
+            writer.write("seconds");
+
+            for (String column : columns)
+                writer.write("," + column);
+
+            writer.newLine();
+        }
+
+        writer.write(Double.toString(millis / 1000.0));
+
+        for (String column : columns) {
+            Double value = values.get(column);
+
+            writer.write(',');
+
+            if (value != null && !value.isNaN())
+                writer.write(TextSink.format(value));
+        }
+
+        writer.newLine();
+
+        // Whole rows reach the file so it can be read while training goes on
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
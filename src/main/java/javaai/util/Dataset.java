@@ -0,0 +1,244 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is a typed, column-oriented data set.
+ * Numeric columns are stored as double arrays and nominal columns as int ordinals into a
+ * dictionary of distinct values, so reading a cell is an array access without boxing or hashing.
+ * <p>A data set does not change once it is loaded. Its fields are final and nothing outside this
+ * package can reach its arrays, so one instance may be shared by any number of threads, e.g., several
+ * models training on the same data in one process, without locking.</p>
+ * @author Ron.Coleman
+ */
+public final class Dataset {
+    /** Column titles */
+    final String[] titles;
+
+    /** Numeric columns -- null where the column is nominal */
+    final double[][] numerics;
+
+    /** Statistics of the numeric columns as loaded -- null where the column is nominal */
+    final ColumnStats[] stats;
+
+    /** Nominal columns as dictionary ordinals -- null where the column is numeric */
+    final int[][] ordinals;
+
+    /** Distinct nominal values by column -- null where the column is numeric */
+    final Object[][] dictionaries;
+
+    /** Number of rows */
+    final int rowCount;
+
+    /**
+     * Constructor
+     * @param columns Column buffers; untyped columns, that is, "don't care" columns are dropped.
+     */
+    Dataset(List<ColumnBuffer> columns) {
+        ArrayList<ColumnBuffer> keep = new ArrayList<>();
+
+        for (ColumnBuffer column : columns) {
+            if (column.type != ColumnBuffer.UNTYPED)
+                keep.add(column);
+        }
+
+        int cols = keep.size();
+
+        titles = new String[cols];
+        numerics = new double[cols][];
+        stats = new ColumnStats[cols];
+        ordinals = new int[cols][];
+        dictionaries = new Object[cols][];
+
+        rowCount = cols == 0 ? 0 : keep.get(0).size;
+
+        for (int col = 0; col < cols; col++) {
+            ColumnBuffer column = keep.get(col);
+
+            // Data assumed rectangular
+            assert (column.size == rowCount);
+
+            titles[col] = column.title;
+
+            // Trim the buffers only if they have spare capacity
+            if (column.type == ColumnBuffer.NUMERIC) {
+                numerics[col] = column.doubles.length == rowCount ?
+                        column.doubles : Arrays.copyOf(column.doubles, rowCount);
+
+                stats[col] = column.stats;
+            }
+
+            else {
+                ordinals[col] = column.ordinals.length == rowCount ?
+                        column.ordinals : Arrays.copyOf(column.ordinals, rowCount);
+
+                dictionaries[col] = column.dictionary.toArray();
+            }
+        }
+    }
+
+    /**
+     * Gets the row count.
+     * @return Row count
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the column count.
+     * @return Column count
+     */
+    public int getColumnCount() {
+        return titles.length;
+    }
+
+    /**
+     * Gets the title for a column.
+     * @param col Column
+     * @return Title
+     */
+    public String getTitle(int col) {
+        return titles[col];
+    }
+
+    /**
+     * Gets the column for a title.
+     * @param title Title
+     * @return Column index or -1 if there's no such column
+     */
+    public int getColumn(String title) {
+        for (int col = 0; col < titles.length; col++) {
+            if (titles[col].equals(title))
+                return col;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Tests whether a column is numeric.
+     * @param col Column
+     * @return True if numeric, false if nominal
+     */
+    public boolean isNumeric(int col) {
+        return numerics[col] != null;
+    }
+
+    /**
+     * Gets the statistics of a numeric column, gathered while it was loaded, that is, before any
+     * normalization.
+     * @param col Numeric column
+     * @return Statistics
+     */
+    public ColumnStats getStats(int col) {
+        return stats[col];
+    }
+
+    /**
+     * Gets a numeric cell.
+     * @param row Row
+     * @param col Numeric column
+     * @return Value or NaN if the value is missing
+     */
+    public double getDouble(int row, int col) {
+        return numerics[col][row];
+    }
+
+    /**
+     * Gets the dictionary ordinal of a nominal cell.
+     * @param row Row
+     * @param col Nominal column
+     * @return Ordinal or -1 if the value is missing
+     */
+    public int getOrdinal(int row, int col) {
+        return ordinals[col][row];
+    }
+
+    /**
+     * Gets the value of a nominal cell.
+     * @param row Row
+     * @param col Nominal column
+     * @return Nominal value or null if the value is missing
+     */
+    public Object getNominal(int row, int col) {
+        int ordinal = ordinals[col][row];
+
+        return ordinal < 0 ? null : dictionaries[col][ordinal];
+    }
+
+    /**
+     * Gets the number of distinct values in a nominal column.
+     * @param col Nominal column
+     * @return Number of subtypes
+     */
+    public int getNominalCount(int col) {
+        return dictionaries[col].length;
+    }
+
+    /**
+     * Gets a distinct value in a nominal column.
+     * @param col     Nominal column
+     * @param ordinal Dictionary ordinal
+     * @return Nominal value
+     */
+    public Object getNominalValue(int col, int ordinal) {
+        return dictionaries[col][ordinal];
+    }
+
+    /**
+     * Copies a row into a buffer, nominal cells as their ordinals.
+     * @param row Row
+     * @param out Buffer with at least one element per column
+     */
+    public void getRow(int row, double[] out) {
+        for (int col = 0; col < titles.length; col++) {
+            if (numerics[col] != null)
+                out[col] = numerics[col][row];
+            else
+                out[col] = ordinals[col][row];
+        }
+    }
+
+    /**
+     * Copies a numeric column into a buffer.
+     * @param col Numeric column
+     * @param out Buffer with at least one element per row
+     */
+    public void getColumn(int col, double[] out) {
+        System.arraycopy(numerics[col], 0, out, 0, rowCount);
+    }
+
+    /**
+     * Copies the ordinals of a nominal column into a buffer, e.g., to encode with a NominalEncoder.
+     * @param col Nominal column
+     * @param out Buffer with at least one element per row
+     */
+    public void getOrdinals(int col, int[] out) {
+        System.arraycopy(ordinals[col], 0, out, 0, rowCount);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import org.encog.mathutil.Equilateral;
+
+/**
+ * This class encodes a nominal with equilateral encoding: n subtypes as the vertices of a
+ * regular simplex in n-1 activations, so every pair of subtypes is equally far apart.
+ * The codes come from Encog. See Heaton (2011), d.25-27 for more details.
+ * @author Ron.Coleman
+ */
+public class EquilateralEncoder extends NominalEncoder {
+    /**
+     * Constructor
+     * @param count Number of subtypes, at least Equilateral.MIN_EQ
+     * @param high  Highest activation, e.g., 1
+     * @param low   Lowest activation, e.g., -1 for TANH or 0 for sigmoid
+     */
+    public EquilateralEncoder(int count, double high, double low) {
+        super(compile(new Equilateral(count, high, low), count));
+    }
+
+    /**
+     * Constructor for a nominal column with codes in [-1, 1].
+     * @param dataset Data set
+     * @param col     Nominal column
+     */
+    public EquilateralEncoder(Dataset dataset, int col) {
+        this(dataset.getNominalCount(col), 1, -1);
+    }
+
+    /**
+     * Compiles the code table.
+     * @param eq    Equilateral encoding
+     * @param count Number of subtypes
+     * @return Code for each ordinal
+     */
+    static double[][] compile(Equilateral eq, int count) {
+        double[][] table = new double[count][];
+
+        for (int ordinal = 0; ordinal < count; ordinal++)
+            table[ordinal] = eq.encode(ordinal).clone();
+
+        return table;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import javaai.util.Activation.Mode;
+
+/**
+ * This class computes e^x in the modes of the activations within a relative tolerance.
+ * <p>The approximate modes split x into k ln 2 + r, get 2^k straight from the exponent bits and
+ * approximate only e^r on a range of width ln 2. The table holds e^r at steps of h and corrects the
+ * remainder s by 1 + s + s^2 / 2, whose relative error, at most h^3 / 6, is the tolerance. The rational
+ * mode centers r on 0 and uses the Pade approximant P(r) / P(-r), taking a higher order until the error
+ * measured is within the tolerance.</p>
+ * @author Ron.Coleman
+ */
+class Exp {
+    /** ln 2 and its reciprocal */
+    final static double LN2 = Math.log(2);
+    final static double LOG2E = 1 / LN2;
+
+    /** Exponents below which e^x is taken as 0 and above which as infinity, so 2^k is a normal double */
+    final static double LOWEST = -708;
+    final static double HIGHEST = 709;
+
+    /** Highest order of the Pade approximant */
+    final static int MAX_ORDER = 12;
+
+    /** Samples to measure the rational error */
+    final static int SAMPLES = 20000;
+
+    /** Mode */
+    final Mode mode;
+
+    /** Table of e^r at evenly spaced r from 0 to ln 2 */
+    double[] table = null;
+
+    /** Table step and entries per unit exponent */
+    double step = 0;
+    double scale = 0;
+
+    /** Pade numerator coefficients */
+    double[] ps = null;
+
+    /**
+     * Constructor
+     * @param mode      Mode
+     * @param tolerance Largest relative error, ignored if the mode is exact
+     */
+    Exp(Mode mode, double tolerance) {
+        this.mode = mode;
+
+        if (mode == Mode.TABLE) {
+            int n = (int) Math.ceil(LN2 / Math.cbrt(6 * tolerance));
+
+            step = LN2 / n;
+            scale = n / LN2;
+
+            // One more entry in case r * scale rounds up to n
+            table = new double[n + 2];
+
+            for (int k = 0; k < table.length; k++)
+                table[k] = Math.exp(k * step);
+        }
+        else if (mode == Mode.RATIONAL) {
+            for (int order = 1; order <= MAX_ORDER; order++) {
+                ps = getPade(order);
+
+                if (getError(SAMPLES) <= tolerance)
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Gets the numerator of the order n Pade approximant of e^x, P(x) / P(-x), whose coefficients are
+     * (2n - k)! n! / ((2n)! k! (n - k)!).
+     * @param n Order
+     * @return Coefficients, lowest power first
+     */
+    static double[] getPade(int n) {
+        double[] cs = new double[n + 1];
+
+        cs[0] = 1;
+
+        // Ratio of consecutive coefficients is (n - k) / ((2n - k) (k + 1))
+        for (int k = 0; k < n; k++)
+            cs[k + 1] = cs[k] * (n - k) / ((2.0 * n - k) * (k + 1));
+
+        return cs;
+    }
+
+    /**
+     * Measures the largest relative error against Math.exp over two reduced ranges, i.e., from -ln 2 to ln 2.
+     * @param samples Number of exponents
+     * @return Largest relative error
+     */
+    double getError(int samples) {
+        double max = 0;
+
+        for (int k = 0; k < samples; k++) {
+            double x = LN2 * (2.0 * k / (samples - 1) - 1);
+
+            double exact = Math.exp(x);
+
+            max = Math.max(max, Math.abs(apply(x) - exact) / exact);
+        }
+
+        return max;
+    }
+
+    /**
+     * Computes e^x.
+     * @param x Exponent
+     * @return e^x
+     */
+    double apply(double x) {
+        if (mode == Mode.EXACT)
+            return Math.exp(x);
+
+        if (x < LOWEST)
+            return 0;
+
+        if (x > HIGHEST)
+            return Double.POSITIVE_INFINITY;
+
+        if (mode == Mode.TABLE) {
+            int k = (int) Math.floor(x * LOG2E);
+
+            double r = x - k * LN2;
+
+            int i = (int) (r * scale);
+
+            double s = r - i * step;
+
+            return pow2(k) * table[i] * (1 + s + 0.5 * s * s);
+        }
+
+        int k = (int) Math.rint(x * LOG2E);
+
+        double r = x - k * LN2;
+
+        return pow2(k) * Activation.horner(ps, r) / Activation.horner(ps, -r);
+    }
+
+    /**
+     * Computes 2^k straight into the exponent bits.
+     * @param k Power from -1022 to 1023
+     * @return 2^k
+     */
+    static double pow2(int k) {
+        return Double.longBitsToDouble((long) (k + 1023) << 52);
+    }
+}
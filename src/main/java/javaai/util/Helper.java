@@ -44,17 +44,39 @@ public class Helper {
 
     public final static boolean DEBUG = Boolean.parseBoolean(System.getProperty("debug","false"));
 
-    /** Respective data, not including headers */
+    /** True to cache parsed CSV files in binary next to the files */
+    public final static boolean CACHE = Boolean.parseBoolean(System.getProperty("cache","true"));
+
+    /** Milliseconds between training metrics reports, 0 for none */
+    public final static long METRICS = Long.getLong("metrics", 0L);
+
+    /** CSV file to report the training metrics to instead of the console or null */
+    public final static String METRICS_CSV = System.getProperty("metrics.csv");
+
+    /** Milliseconds between hand-offs of the epochs logged to the console */
+    public final static long LOG_PERIOD = 100;
+
+    /** Respective data, not including headers -- a copy of the last data set loaded by loadCsv */
     public final static HashMap<String, List> data = new HashMap<>();
 
-    /** Respective headers */
+    /** Respective headers -- a copy of the titles of the last data set loaded by loadCsv */
     public final static List<String> headers = new ArrayList<>();
 
     /** 1 of N encoding */
     static HashMap<String, List<Integer>> oneOfN = new HashMap<>();
 
+    /** Last data set loaded by loadCsv */
+    static Dataset dataset = null;
+
+    /** Metrics printing the epochs of log or null if none is running */
+    static Metrics logger = null;
+
     /**
      * Loads a CSV file -- column must be of same ontology.
+     * <p>This method and the other static data methods are kept for compatibility: they share one
+     * data set per process, so each load replaces the last one. They are synchronized but
+     * the data and headers they publish are not; new code should use loadDataset, which returns
+     * an immutable data set that can be shared across threads.</p>
      * @param path    Path in system to file
      * @param parsers Parsers to interpret the column
      * @param ran Random number generator to randomize the rows prior to parsing.
@@ -62,7 +84,7 @@ public class Helper {
      * @throws IOException
      * @throws Exception
      */
-    public static void loadCsv(String path, List<Function<String, Object>> parsers, Random ran)
+    public static synchronized void loadCsv(String path, List<Function<String, Object>> parsers, Random ran)
             throws FileNotFoundException, IOException, Exception {
         data.clear();
 
@@ -70,80 +92,37 @@ public class Helper {
 
         oneOfN.clear();
 
-        ArrayList<String> lines = preload(path, ran);
+        dataset = null;
 
-        for (int row = 0; row < lines.size(); row++) {
-            if (DEBUG)
-                System.out.println(row + ": " + lines.get(row));
+        Dataset loaded = loadDataset(path, parsers, ran);
 
-            String[] fields = lines.get(row).split(",");
+        // Copy the columns into the boxed lists of the static API
+        for (int col = 0; col < loaded.getColumnCount(); col++) {
+            String title = loaded.getTitle(col);
 
-            // Handle empty rows
-            if (fields.length == 0) {
-                continue;
-            }
+            ArrayList<Object> list = new ArrayList<>(loaded.getRowCount());
 
-            // Validate fields and ontology length match
-            if (fields.length != parsers.size()) {
-                throw new Exception("fields mismatch row " + row);
+            for (int row = 0; row < loaded.getRowCount(); row++) {
+                if (loaded.isNumeric(col))
+                    list.add(loaded.getDouble(row, col));
+                else
+                    list.add(loaded.getNominal(row, col));
             }
 
-            // Assumes row zero is a header row
-            if (row == 0) {
-                // Create a title for each column
-                for (String title : fields) {
-                    headers.add(title);
-
-                    // Create a dataset by name for each column
-                    data.put(title, new ArrayList<>());
-                }
-            } else {
-                // Go through each field and parse it according to its functional
-                for (int col = 0; col < fields.length; col++) {
-                    String title = headers.get(col);
-
-                    List list = data.get(title);
-
-                    Function<String, Object> parser = parsers.get(col);
-
-                    Object obj = parse(parser, fields[col].trim());
+            headers.add(title);
 
-                    if (obj == null)
-                        System.out.println(lines.get(row));
-
-                    // Note: == is normally a bad idea but None is static in this case
-                    if (obj == None) {
-                        continue;
-                    }
-
-                    list.add(obj);
-                }
-            }
-        }
-
-        // Delete don't care columns in header and data.
-        // First we have to get the don't care columns then delete them because Java list collection
-        // does not permit updating the list while traversing it at the same time.
-        ArrayList<String> trash = new ArrayList<>();
-        for (String title : headers) {
-            if (data.get(title).size() == 0)
-                trash.add(title);
+            data.put(title, list);
         }
 
-        for (String title : trash) {
-            data.remove(title);
-            headers.remove(title);
-        }
+        dataset = loaded;
     }
 
     /**
-     * Parses a string object.
-     * @param function Parser
-     * @param input    Data we're going to parse
-     * @return Object result of parsing
+     * Gets the data set last loaded by loadCsv.
+     * @return Data set or null if none is loaded
      */
-    private static Object parse(Function<String, Object> function, String input) {
-        return function.apply(input);
+    public static synchronized Dataset getDataset() {
+        return dataset;
     }
 
     /**
@@ -158,21 +137,49 @@ public class Helper {
     }
 
     /**
-     * Gets the subtypes for
-     * @param col Column index
-     * @return Names of the subtypes
+     * Loads a CSV file into a typed, column-oriented data set.
+     * Assumes first row is the header row. Columns which parse entirely to None are dropped.
+     * The parsed columns are cached next to the file unless the "cache" property is false.
+     * See CsvLoader for more options, e.g., parsing on several threads.
+     * @param path    Path in system to file
+     * @param parsers Parsers to interpret the column
+     * @param ran     Random number generator to randomize the rows or null to keep them in file order.
+     * @return Data set
+     * @throws Exception
      */
-    public static List<String> getNominalSubtypes(int col) {
-        if (oneOfN.isEmpty())
-            oneOfN = encodeOneOfN(col);
+    public static Dataset loadDataset(String path, List<Function<String, Object>> parsers, Random ran)
+            throws Exception {
+        CsvLoader loader = new CsvLoader(parsers);
 
-        Object[] keys = oneOfN.keySet().toArray();
+        loader.setRandom(ran);
 
+        loader.setCache(CACHE);
+
+        return loader.load(path);
+    }
+
+    /**
+     * Loads a CSV file into a typed, column-oriented data set.
+     * Assumes first row is the header row.
+     * @param path    File path
+     * @param parsers Parsers of data
+     * @return Data set
+     * @throws Exception
+     */
+    public static Dataset loadDataset(String path, List<Function<String, Object>> parsers) throws Exception {
+        return Helper.loadDataset(path, parsers, new Random(0));
+    }
+
+    /**
+     * Gets the subtypes for a nominal column of the data set last loaded by loadCsv.
+     * @param col Column index
+     * @return Names of the subtypes in order of dictionary ordinal
+     */
+    public static synchronized List<String> getNominalSubtypes(int col) {
         ArrayList<String> subtypes = new ArrayList<>();
 
-        for (Object key : keys) {
-            subtypes.add((String) key);
-        }
+        for (int ordinal = 0; ordinal < dataset.getNominalCount(col); ordinal++)
+            subtypes.add(String.valueOf(dataset.getNominalValue(col, ordinal)));
 
         return subtypes;
     }
@@ -182,120 +189,44 @@ public class Helper {
      * @param col Column index
      * @return Number of subtypes
      */
-    public static int getNominalSubtypeCount(int col) {
-        if (!oneOfN.isEmpty())
-            oneOfN = encodeOneOfN(col);
-
-        return getNominalSubtypes(col).size();
+    public static synchronized int getNominalSubtypeCount(int col) {
+        return dataset.getNominalCount(col);
     }
 
     /**
      * Gets an encoded hash map of nominal types and their 1-of-n values as 1 or -1.
-     * Assumes there's exactly one nominal type.
+     * Assumes there's exactly one nominal type. New code should use OneOfNEncoder, which
+     * encodes by dictionary ordinal without boxing.
      * @param col Column of nominals
-     * @return Hash map of nominal and its 1-of-n encoding
+     * @return Hash map of nominal and its 1-of-n encoding in order of dictionary ordinal
      */
-    public static HashMap<String, List<Integer>> encodeOneOfN(int col) {
+    public static synchronized HashMap<String, List<Integer>> encodeOneOfN(int col) {
         if (!oneOfN.isEmpty())
             return oneOfN;
 
         // Hash map to return: nominal name -> 1-of-n encoding
-        oneOfN = new HashMap<String, List<Integer>>();
-
-        // Use this title to retrieve the nominal column
-        String title = Helper.headers.get(col);
-
-        List<String> nominals = Helper.data.get(title);
-
-        // Count the number of unique nominal values
-        // (Note: we also keep a count of nominal values but it is not used.)
-        HashMap<String, Integer> counter = new HashMap<>();
-
-        HashSet<String> uniques = new HashSet<>();
-
-        nominals.forEach((nominal) -> {
-            int count = counter.getOrDefault(nominal, 0);
-
-            counter.put(nominal, count + 1);
-        });
-
-        int size = counter.size();
+        oneOfN = new LinkedHashMap<>();
 
-        // Encode each nominal
+        OneOfNEncoder encoder = new OneOfNEncoder(dataset, col);
 
-        // Here are the keys we're going to use and in this sequence
-        Object[] keys = counter.keySet().toArray();
-
-        for (int j = 0; j < size; j++) {
+        for (int ordinal = 0; ordinal < encoder.getCount(); ordinal++) {
             ArrayList<Integer> encoding = new ArrayList<>();
 
-            for (int k = 0; k < size; k++) {
-                if (k == j) {
-                    encoding.add(1);
-                } else {
-                    encoding.add(-1);
-                }
-            }
+            for (double code : encoder.encode(ordinal))
+                encoding.add((int) code);
 
-            oneOfN.put((String) keys[j], encoding);
+            oneOfN.put(String.valueOf(dataset.getNominalValue(col, ordinal)), encoding);
         }
 
         return oneOfN;
     }
 
-    /**
-     * Pre-loads the data into memory buffer and if necessary, randomizes it.
-     * @param path Path to the file
-     * @param ran  Whether or not to randomize the buffer
-     * @return Buffer of lines
-     * @throws FileNotFoundException
-     * @throws IOException
-     */
-    private static ArrayList<String> preload(String path, Random ran) throws FileNotFoundException, IOException {
-        // All line are store here
-        ArrayList<String> lines = new ArrayList<>();
-
-        // Open the file
-        BufferedReader br = new BufferedReader(new FileReader(path));
-
-        int row = 0;
-
-        // First line assumed to be the header
-        String firstLine = null;
-
-        do {
-            // Gets a line and adds it to the buffer of lines
-            String line = br.readLine();
-
-            // If we get to the end, return the buffer
-            if (line == null) {
-                // Shuffle the lines but make the first line the header
-                Collections.shuffle(lines, ran);
-
-                lines.add(0, firstLine);
-
-                br.close();
-
-                break;
-            }
-
-            if (row == 0)
-                firstLine = line;
-            else
-                lines.add(line);
-
-            row++;
-        } while (true);
-
-        return lines;
-    }
-
     /**
      * Gets the title for a column.
      * @param col Column
      * @return Title
      */
-    public static String getTitle(int col) {
+    public static synchronized String getTitle(int col) {
         assert (col >= 0 && col < headers.size());
 
         return headers.get(col);
@@ -306,7 +237,7 @@ public class Helper {
      * @param row Row number
      * @return Map of header title to object for each row
      */
-    public static HashMap<String, Object> asMap(int row) {
+    public static synchronized HashMap<String, Object> asMap(int row) {
         HashMap<String, Object> map = new HashMap<>();
 
         for (String header : headers)
@@ -319,7 +250,7 @@ public class Helper {
      * Gets the row count of loaded data.
      * @return Row count
      */
-    public static int getRowCount() {
+    public static synchronized int getRowCount() {
         // Validate data has been loaded
         if (headers == null || headers.size() == 0)
             return 0;
@@ -586,29 +517,75 @@ public class Helper {
     }
 
     /**
-     * Logs statistics for each epoch.
+     * Gets metrics for a training run, reporting every METRICS milliseconds, if set, to the METRICS_CSV
+     * file, if set, otherwise to the console. Stop them at the end of the run for a last report. The
+     * metrics must not stop the training, so if the CSV file can't be created, they only record.
+     * @return Metrics
+     */
+    public static Metrics getMetrics() {
+        Metrics metrics = new Metrics();
+
+        try {
+            if (METRICS > 0)
+                metrics.start(METRICS_CSV == null ? new TextSink() : new CsvSink(METRICS_CSV), METRICS);
+        }
+        catch (IOException e) {
+            System.err.println("metrics not reported: " + e.getMessage());
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Logs statistics for each epoch. The lines are printed by a {@link LogSink} off the training
+     * thread; once done, they are all printed before this returns.
      * @param epoch Epoch number
      * @param train Training results
      * @param done  True if the training is done
      */
-    public static void log(int epoch, BasicTraining train, boolean done) {
+    public static synchronized void log(int epoch, BasicTraining train, boolean done) {
         if(DEBUG)
             return;
 
         final int FREQUENCY = 100;
 
-        // Report only the header
-        if (epoch == 0)
-            System.out.printf("%8s %6s\n", "epoch", "error");
+        // A new training starts a new log with the header
+        if (epoch == 0 || logger == null) {
+            stopLog();
+
+            logger = new Metrics();
 
-        else if (epoch == 1 || (!done && (epoch % FREQUENCY) == 0)) {
-            System.out.printf("%8d %6.4f\n", epoch, train.getError());
+            logger.start(new LogSink(String.format("%8s %6s", "epoch", "error"), "%8d %6.4f"), LOG_PERIOD);
         }
-        // Report only if we haven't just reported
-        else if (done && (epoch % FREQUENCY) != 0)
-            System.out.printf("%8d %6.4f\n", epoch, train.getError());
+
+        // Report only the header at epoch 0, then the first epoch, every FREQUENCY epochs and the last
+        // if we haven't just reported it
+        boolean due = done ? (epoch % FREQUENCY) != 0 : (epoch % FREQUENCY) == 0;
+
+        if (epoch == 1 || (epoch != 0 && due))
+            logger.log(epoch, train.getError());
+
+        if (done)
+            stopLog();
 
         if (epoch >= MAX_EPOCHS && done)
             System.out.println("--- DID NOT CONVERGE!");
     }
+
+    /**
+     * Prints the epochs logged, if any, and stops the log.
+     */
+    static void stopLog() {
+        if (logger == null)
+            return;
+
+        try {
+            logger.stop();
+        }
+        catch (IOException e) {
+            System.err.println("log not closed: " + e.getMessage());
+        }
+
+        logger = null;
+    }
 }
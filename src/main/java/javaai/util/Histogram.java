@@ -0,0 +1,168 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records a distribution of non-negative longs, e.g., nanosecond timings, in log-linear
+ * buckets the way HdrHistogram does: each power of two is split into SUB_BUCKETS equal buckets, so
+ * any value is counted within 1 / SUB_BUCKETS of itself, about 3%, from one to Long.MAX_VALUE in a
+ * fixed array of counts.
+ * <p>Recording is lock-free, one atomic increment of a count plus adders for the sum, so threads may
+ * record while another reads; a reader sees each value counted or not but may see the sum and the
+ * counts of slightly different moments.</p>
+ * @author Ron.Coleman
+ */
+public class Histogram {
+    /** Buckets per power of two as a power of two */
+    public final static int SUB_BITS = 5;
+    public final static int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /** Count by bucket */
+    protected final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS) * SUB_BUCKETS);
+
+    /** Number of values */
+    protected final LongAdder count = new LongAdder();
+
+    /** Sum of the values */
+    protected final LongAdder sum = new LongAdder();
+
+    /** Largest value */
+    protected final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     * @param value Value, negatives are recorded as zero
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        counts.incrementAndGet(getBucket(value));
+
+        count.increment();
+
+        sum.add(value);
+
+        if (value > max.get())
+            max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gets the bucket of a value: the value itself below 2 * SUB_BUCKETS, otherwise its power of two
+     * and the sub-bucket given by the bits just below the leading one.
+     * @param value Non-negative value
+     * @return Bucket
+     */
+    static int getBucket(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the largest value of a bucket.
+     * @param bucket Bucket
+     * @return Value
+     */
+    static long getHighest(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket;
+
+        int shift = bucket / SUB_BUCKETS - 1;
+
+        long low = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+
+        return low + (1L << shift) - 1;
+    }
+
+    /**
+     * Gets the number of values.
+     * @return Count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the mean.
+     * @return Mean or 0 if there are no values
+     */
+    public double getMean() {
+        long n = count.sum();
+
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Gets the largest value.
+     * @return Largest value or 0 if there are no values
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets a percentile, i.e., the value at or below which a fraction of the values lie, to within the bucket width.
+     * @param percentile Percentile in [0, 100]
+     * @return Largest value of the bucket holding the percentile, at most the largest value, or 0 if there are no values
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+
+        for (int bucket = 0; bucket < counts.length(); bucket++)
+            total += counts.get(bucket);
+
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+
+        long seen = 0;
+
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            seen += counts.get(bucket);
+
+            if (seen >= rank)
+                return Math.min(getHighest(bucket), max.get());
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Clears the values, e.g., to start a new interval. Values recorded meanwhile may be lost.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < counts.length(); bucket++)
+            counts.set(bucket, 0);
+
+        count.reset();
+
+        sum.reset();
+
+        max.set(0);
+    }
+}
@@ -0,0 +1,664 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * This class has the dense linear algebra kernels of the networks: dot product, matrix-vector and
+ * matrix-matrix products on row-major matrices in flat arrays, in double or, for inference, in float
+ * summed in double or with the weights in a buffer, e.g., a memory-mapped snapshot.
+ * <p>A matrix is an array, the offset of its first element and its leading dimension, i.e., the
+ * distance between rows, so a layer's weights can be used in place in the network's weight array
+ * even though each neuron's row also holds its bias. The products add to their result, like BLAS
+ * with beta = 1, so the caller can start the result at zero, at the biases or at a running sum.</p>
+ * <p>The loops are unrolled by four, either into four independent sums or four rows sharing each
+ * load, which lets the JIT keep more multiply-adds in flight and use its superword vectorization.</p>
+ * @author Ron.Coleman
+ */
+public class Kernels {
+    /** Tile of gemmNT: rows of A and of B and the length of the dot products, about 128 KB of B per tile */
+    public final static int TILE_M = 64;
+    public final static int TILE_N = 64;
+    public final static int TILE_K = 256;
+
+    /**
+     * Computes the dot product of two vectors.
+     * @param a    First vector
+     * @param aOff Offset of the first vector
+     * @param b    Second vector
+     * @param bOff Offset of the second vector
+     * @param n    Length
+     * @return Dot product
+     */
+    public static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int k = 0;
+
+        for (; k + 3 < n; k += 4) {
+            s0 += a[aOff + k] * b[bOff + k];
+            s1 += a[aOff + k + 1] * b[bOff + k + 1];
+            s2 += a[aOff + k + 2] * b[bOff + k + 2];
+            s3 += a[aOff + k + 3] * b[bOff + k + 3];
+        }
+
+        for (; k < n; k++)
+            s0 += a[aOff + k] * b[bOff + k];
+
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Adds a matrix-vector product: y += A x.
+     * @param m    Rows of A
+     * @param n    Columns of A
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param x    x, n long
+     * @param xOff Offset of x
+     * @param y    y, m long
+     * @param yOff Offset of y
+     */
+    public static void gemv(int m, int n, double[] a, int aOff, int lda, double[] x, int xOff, double[] y, int yOff) {
+        int i = 0;
+
+        // Four rows share each element of x
+        for (; i + 3 < m; i += 4) {
+            int a0 = aOff + i * lda;
+            int a1 = a0 + lda;
+            int a2 = a1 + lda;
+            int a3 = a2 + lda;
+
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+            for (int k = 0; k < n; k++) {
+                double xk = x[xOff + k];
+
+                s0 += a[a0 + k] * xk;
+                s1 += a[a1 + k] * xk;
+                s2 += a[a2 + k] * xk;
+                s3 += a[a3 + k] * xk;
+            }
+
+            y[yOff + i] += s0;
+            y[yOff + i + 1] += s1;
+            y[yOff + i + 2] += s2;
+            y[yOff + i + 3] += s3;
+        }
+
+        for (; i < m; i++)
+            y[yOff + i] += dot(a, aOff + i * lda, x, xOff, n);
+    }
+
+    /**
+     * Adds a transposed matrix-vector product: y += A' x.
+     * @param m    Rows of A
+     * @param n    Columns of A
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param x    x, m long
+     * @param xOff Offset of x
+     * @param y    y, n long
+     * @param yOff Offset of y
+     */
+    public static void gemvT(int m, int n, double[] a, int aOff, int lda, double[] x, int xOff, double[] y, int yOff) {
+        int i = 0;
+
+        // Four rows share each load and store of y
+        for (; i + 3 < m; i += 4) {
+            int a0 = aOff + i * lda;
+            int a1 = a0 + lda;
+            int a2 = a1 + lda;
+            int a3 = a2 + lda;
+
+            double x0 = x[xOff + i];
+            double x1 = x[xOff + i + 1];
+            double x2 = x[xOff + i + 2];
+            double x3 = x[xOff + i + 3];
+
+            for (int j = 0; j < n; j++)
+                y[yOff + j] += a[a0 + j] * x0 + a[a1 + j] * x1 + a[a2 + j] * x2 + a[a3 + j] * x3;
+        }
+
+        for (; i < m; i++) {
+            int a0 = aOff + i * lda;
+
+            double x0 = x[xOff + i];
+
+            for (int j = 0; j < n; j++)
+                y[yOff + j] += a[a0 + j] * x0;
+        }
+    }
+
+    /**
+     * Adds a matrix product with the second matrix transposed: C += A B', e.g., a batch of inputs
+     * times the transposed weights.
+     * <p>The product goes tile by tile so each tile of B, i.e., of the weights, stays in cache while
+     * every row of A passes over it, instead of the whole of B streaming through cache once per row.</p>
+     * @param m    Rows of A and C
+     * @param n    Rows of B and columns of C
+     * @param k    Columns of A and B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param b    B
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     */
+    public static void gemmNT(int m, int n, int k, double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc) {
+        for (int p0 = 0; p0 < k; p0 += TILE_K) {
+            int kc = Math.min(TILE_K, k - p0);
+
+            for (int j0 = 0; j0 < n; j0 += TILE_N) {
+                int nc = Math.min(TILE_N, n - j0);
+
+                for (int i0 = 0; i0 < m; i0 += TILE_M) {
+                    int mc = Math.min(TILE_M, m - i0);
+
+                    tileNT(mc, nc, kc, a, aOff + i0 * lda + p0, lda, b, bOff + j0 * ldb + p0, ldb,
+                            c, cOff + i0 * ldc + j0, ldc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the product of one tile: C += A B', four rows of A by two rows of B at a time, so eight
+     * sums stay in registers and each element loaded is used two or four times.
+     * @param m    Rows of A and C
+     * @param n    Rows of B and columns of C
+     * @param k    Columns of A and B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param b    B
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     */
+    static void tileNT(int m, int n, int k, double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                       double[] c, int cOff, int ldc) {
+        int i = 0;
+
+        for (; i + 3 < m; i += 4) {
+            int a0 = aOff + i * lda;
+            int a1 = a0 + lda;
+            int a2 = a1 + lda;
+            int a3 = a2 + lda;
+
+            int j = 0;
+
+            for (; j + 1 < n; j += 2) {
+                int b0 = bOff + j * ldb;
+                int b1 = b0 + ldb;
+
+                double s00 = 0, s01 = 0, s10 = 0, s11 = 0, s20 = 0, s21 = 0, s30 = 0, s31 = 0;
+
+                for (int p = 0; p < k; p++) {
+                    double w0 = b[b0 + p];
+                    double w1 = b[b1 + p];
+
+                    double x0 = a[a0 + p];
+                    double x1 = a[a1 + p];
+                    double x2 = a[a2 + p];
+                    double x3 = a[a3 + p];
+
+                    s00 += x0 * w0;
+                    s01 += x0 * w1;
+                    s10 += x1 * w0;
+                    s11 += x1 * w1;
+                    s20 += x2 * w0;
+                    s21 += x2 * w1;
+                    s30 += x3 * w0;
+                    s31 += x3 * w1;
+                }
+
+                int c0 = cOff + i * ldc + j;
+
+                c[c0] += s00;
+                c[c0 + 1] += s01;
+                c[c0 + ldc] += s10;
+                c[c0 + ldc + 1] += s11;
+                c[c0 + 2 * ldc] += s20;
+                c[c0 + 2 * ldc + 1] += s21;
+                c[c0 + 3 * ldc] += s30;
+                c[c0 + 3 * ldc + 1] += s31;
+            }
+
+            for (; j < n; j++) {
+                int b0 = bOff + j * ldb;
+
+                double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+                for (int p = 0; p < k; p++) {
+                    double w = b[b0 + p];
+
+                    s0 += w * a[a0 + p];
+                    s1 += w * a[a1 + p];
+                    s2 += w * a[a2 + p];
+                    s3 += w * a[a3 + p];
+                }
+
+                int c0 = cOff + i * ldc + j;
+
+                c[c0] += s0;
+                c[c0 + ldc] += s1;
+                c[c0 + 2 * ldc] += s2;
+                c[c0 + 3 * ldc] += s3;
+            }
+        }
+
+        for (; i < m; i++)
+            for (int j = 0; j < n; j++)
+                c[cOff + i * ldc + j] += dot(b, bOff + j * ldb, a, aOff + i * lda, k);
+    }
+
+    /**
+     * Adds a matrix product: C += A B, e.g., a batch of deltas times the weights.
+     * @param m    Rows of A and C
+     * @param n    Columns of B and C
+     * @param k    Columns of A and rows of B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param b    B
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     */
+    public static void gemmNN(int m, int n, int k, double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc) {
+        int i = 0;
+
+        // Four rows of C share each element of B
+        for (; i + 3 < m; i += 4) {
+            int c0 = cOff + i * ldc;
+            int c1 = c0 + ldc;
+            int c2 = c1 + ldc;
+            int c3 = c2 + ldc;
+
+            for (int p = 0; p < k; p++) {
+                int b0 = bOff + p * ldb;
+
+                double a0 = a[aOff + i * lda + p];
+                double a1 = a[aOff + (i + 1) * lda + p];
+                double a2 = a[aOff + (i + 2) * lda + p];
+                double a3 = a[aOff + (i + 3) * lda + p];
+
+                for (int j = 0; j < n; j++) {
+                    double w = b[b0 + j];
+
+                    c[c0 + j] += w * a0;
+                    c[c1 + j] += w * a1;
+                    c[c2 + j] += w * a2;
+                    c[c3 + j] += w * a3;
+                }
+            }
+        }
+
+        for (; i < m; i++) {
+            int c0 = cOff + i * ldc;
+
+            for (int p = 0; p < k; p++) {
+                int b0 = bOff + p * ldb;
+
+                double a0 = a[aOff + i * lda + p];
+
+                for (int j = 0; j < n; j++)
+                    c[c0 + j] += b[b0 + j] * a0;
+            }
+        }
+    }
+
+    /**
+     * Adds a matrix product with the first matrix transposed: C += A' B, e.g., the transposed batch
+     * of deltas times the batch of inputs, which sums the gradient over the batch.
+     * @param m    Columns of A and rows of C
+     * @param n    Columns of B and C
+     * @param k    Rows of A and B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param b    B
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     */
+    public static void gemmTN(int m, int n, int k, double[] a, int aOff, int lda, double[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc) {
+        for (int i = 0; i < m; i++) {
+            int c0 = cOff + i * ldc;
+
+            int p = 0;
+
+            // Four rows of B share each load and store of C
+            for (; p + 3 < k; p += 4) {
+                double a0 = a[aOff + p * lda + i];
+                double a1 = a[aOff + (p + 1) * lda + i];
+                double a2 = a[aOff + (p + 2) * lda + i];
+                double a3 = a[aOff + (p + 3) * lda + i];
+
+                int b0 = bOff + p * ldb;
+                int b1 = b0 + ldb;
+                int b2 = b1 + ldb;
+                int b3 = b2 + ldb;
+
+                for (int j = 0; j < n; j++)
+                    c[c0 + j] += a0 * b[b0 + j] + a1 * b[b1 + j] + a2 * b[b2 + j] + a3 * b[b3 + j];
+            }
+
+            for (; p < k; p++) {
+                double a0 = a[aOff + p * lda + i];
+
+                int b0 = bOff + p * ldb;
+
+                for (int j = 0; j < n; j++)
+                    c[c0 + j] += a0 * b[b0 + j];
+            }
+        }
+    }
+
+    /**
+     * Computes the dot product of two float vectors, summing in double.
+     * @param a    First vector
+     * @param aOff Offset of the first vector
+     * @param b    Second vector
+     * @param bOff Offset of the second vector
+     * @param n    Length
+     * @return Dot product
+     */
+    public static double dot(float[] a, int aOff, float[] b, int bOff, int n) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+        int k = 0;
+
+        for (; k + 3 < n; k += 4) {
+            s0 += (double) a[aOff + k] * b[bOff + k];
+            s1 += (double) a[aOff + k + 1] * b[bOff + k + 1];
+            s2 += (double) a[aOff + k + 2] * b[bOff + k + 2];
+            s3 += (double) a[aOff + k + 3] * b[bOff + k + 3];
+        }
+
+        for (; k < n; k++)
+            s0 += (double) a[aOff + k] * b[bOff + k];
+
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Adds a float matrix-vector product to a double vector: y += A x, summing in double.
+     * @param m    Rows of A
+     * @param n    Columns of A
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param x    x, n long
+     * @param xOff Offset of x
+     * @param y    y, m long
+     * @param yOff Offset of y
+     */
+    public static void gemv(int m, int n, float[] a, int aOff, int lda, float[] x, int xOff, double[] y, int yOff) {
+        int i = 0;
+
+        // Four rows share each element of x
+        for (; i + 3 < m; i += 4) {
+            int a0 = aOff + i * lda;
+            int a1 = a0 + lda;
+            int a2 = a1 + lda;
+            int a3 = a2 + lda;
+
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+            for (int k = 0; k < n; k++) {
+                double xk = x[xOff + k];
+
+                s0 += a[a0 + k] * xk;
+                s1 += a[a1 + k] * xk;
+                s2 += a[a2 + k] * xk;
+                s3 += a[a3 + k] * xk;
+            }
+
+            y[yOff + i] += s0;
+            y[yOff + i + 1] += s1;
+            y[yOff + i + 2] += s2;
+            y[yOff + i + 3] += s3;
+        }
+
+        for (; i < m; i++)
+            y[yOff + i] += dot(a, aOff + i * lda, x, xOff, n);
+    }
+
+    /**
+     * Adds a float matrix product with the second matrix transposed to a double matrix: C += A B',
+     * summing in double. Each tile is widened to double once and multiplied by the double tile, so
+     * the widening costs one pass per tile rather than one per multiply. It saves storage, not time:
+     * it is a little slower than the double product, and converting each element in the register
+     * block instead is about four times slower.
+     * @param m    Rows of A and C
+     * @param n    Rows of B and columns of C
+     * @param k    Columns of A and B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param b    B
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     */
+    public static void gemmNT(int m, int n, int k, float[] a, int aOff, int lda, float[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc) {
+        double[] wa = new double[Math.min(TILE_M, m) * Math.min(TILE_K, k)];
+        double[] wb = new double[Math.min(TILE_N, n) * Math.min(TILE_K, k)];
+
+        gemmNT(m, n, k, a, aOff, lda, b, bOff, ldb, c, cOff, ldc, wa, wb);
+    }
+
+    /**
+     * Adds a float matrix product with the second matrix transposed to a double matrix, C += A B',
+     * widening the tiles into the caller's scratch so repeated products allocate nothing.
+     * @param m    Rows of A and C
+     * @param n    Rows of B and columns of C
+     * @param k    Columns of A and B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param b    B
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     * @param wa   Scratch for a tile of A, at least min(TILE_M, m) x min(TILE_K, k)
+     * @param wb   Scratch for a tile of B, at least min(TILE_N, n) x min(TILE_K, k)
+     */
+    public static void gemmNT(int m, int n, int k, float[] a, int aOff, int lda, float[] b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc, double[] wa, double[] wb) {
+        for (int p0 = 0; p0 < k; p0 += TILE_K) {
+            int kc = Math.min(TILE_K, k - p0);
+
+            for (int j0 = 0; j0 < n; j0 += TILE_N) {
+                int nc = Math.min(TILE_N, n - j0);
+
+                widen(nc, kc, b, bOff + j0 * ldb + p0, ldb, wb);
+
+                for (int i0 = 0; i0 < m; i0 += TILE_M) {
+                    int mc = Math.min(TILE_M, m - i0);
+
+                    widen(mc, kc, a, aOff + i0 * lda + p0, lda, wa);
+
+                    tileNT(mc, nc, kc, wa, 0, kc, wb, 0, kc, c, cOff + i0 * ldc + j0, ldc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a float tile into a packed double tile.
+     * @param m    Rows
+     * @param n    Columns
+     * @param a    Float matrix
+     * @param aOff Offset of the tile
+     * @param lda  Leading dimension of the float matrix
+     * @param w    Double tile, m x n with leading dimension n
+     */
+    static void widen(int m, int n, float[] a, int aOff, int lda, double[] w) {
+        for (int i = 0; i < m; i++) {
+            int from = aOff + i * lda;
+            int to = i * n;
+
+            for (int j = 0; j < n; j++)
+                w[to + j] = a[from + j];
+        }
+    }
+
+    /**
+     * Adds a matrix-vector product with A in a buffer: y += A x.
+     * @param m    Rows of A
+     * @param n    Columns of A
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param x    x, n long
+     * @param xOff Offset of x
+     * @param y    y, m long
+     * @param yOff Offset of y
+     */
+    public static void gemv(int m, int n, DoubleBuffer a, int aOff, int lda, double[] x, int xOff, double[] y, int yOff) {
+        int i = 0;
+
+        // Four rows share each element of x
+        for (; i + 3 < m; i += 4) {
+            int a0 = aOff + i * lda;
+            int a1 = a0 + lda;
+            int a2 = a1 + lda;
+            int a3 = a2 + lda;
+
+            double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+
+            for (int k = 0; k < n; k++) {
+                double xk = x[xOff + k];
+
+                s0 += a.get(a0 + k) * xk;
+                s1 += a.get(a1 + k) * xk;
+                s2 += a.get(a2 + k) * xk;
+                s3 += a.get(a3 + k) * xk;
+            }
+
+            y[yOff + i] += s0;
+            y[yOff + i + 1] += s1;
+            y[yOff + i + 2] += s2;
+            y[yOff + i + 3] += s3;
+        }
+
+        for (; i < m; i++) {
+            int a0 = aOff + i * lda;
+
+            double s = 0;
+
+            for (int k = 0; k < n; k++)
+                s += a.get(a0 + k) * x[xOff + k];
+
+            y[yOff + i] += s;
+        }
+    }
+
+    /**
+     * Adds a matrix product with the second matrix in a buffer and transposed: C += A B'. Each tile
+     * of B is copied out of the buffer once and multiplied by the array tile, so the copy costs one
+     * pass per tile and the rows of A see an array.
+     * @param m    Rows of A and C
+     * @param n    Rows of B and columns of C
+     * @param k    Columns of A and B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param b    B
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     */
+    public static void gemmNT(int m, int n, int k, double[] a, int aOff, int lda, DoubleBuffer b, int bOff, int ldb,
+                              double[] c, int cOff, int ldc) {
+        double[] wb = new double[Math.min(TILE_N, n) * Math.min(TILE_K, k)];
+
+        // Absolute bulk gets are Java 13+ so read through a private cursor
+        gemmNT(m, n, k, a, aOff, lda, b.duplicate(), bOff, ldb, c, cOff, ldc, wb);
+    }
+
+    /**
+     * Adds a matrix product with the second matrix in a buffer and transposed, C += A B', copying the
+     * tiles of B into the caller's scratch so repeated products allocate nothing.
+     * @param m    Rows of A and C
+     * @param n    Rows of B and columns of C
+     * @param k    Columns of A and B
+     * @param a    A
+     * @param aOff Offset of A
+     * @param lda  Leading dimension of A
+     * @param from B, whose position this moves, so a view no one else reads through
+     * @param bOff Offset of B
+     * @param ldb  Leading dimension of B
+     * @param c    C
+     * @param cOff Offset of C
+     * @param ldc  Leading dimension of C
+     * @param wb   Scratch for a tile of B, at least min(TILE_N, n) x min(TILE_K, k)
+     */
+    public static void gemmNT(int m, int n, int k, double[] a, int aOff, int lda, DoubleBuffer from, int bOff, int ldb,
+                              double[] c, int cOff, int ldc, double[] wb) {
+        for (int p0 = 0; p0 < k; p0 += TILE_K) {
+            int kc = Math.min(TILE_K, k - p0);
+
+            for (int j0 = 0; j0 < n; j0 += TILE_N) {
+                int nc = Math.min(TILE_N, n - j0);
+
+                for (int j = 0; j < nc; j++) {
+                    from.position(bOff + (j0 + j) * ldb + p0);
+
+                    from.get(wb, j * kc, kc);
+                }
+
+                for (int i0 = 0; i0 < m; i0 += TILE_M) {
+                    int mc = Math.min(TILE_M, m - i0);
+
+                    tileNT(mc, nc, kc, a, aOff + i0 * lda + p0, lda, wb, 0, kc, c, cOff + i0 * ldc + j0, ldc);
+                }
+            }
+        }
+    }
+}
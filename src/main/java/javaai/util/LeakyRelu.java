@@ -0,0 +1,63 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+/**
+ * This class implements the leaky rectified linear unit activation, x if positive, otherwise a small
+ * slope times x, which is always exact.
+ * @author Ron.Coleman
+ */
+public class LeakyRelu extends Activation {
+    /** Default slope of negative values */
+    public final static double ALPHA = 0.01;
+
+    /** Slope of negative values */
+    protected final double alpha;
+
+    /**
+     * Constructor with the default slope.
+     */
+    public LeakyRelu() {
+        this(ALPHA);
+    }
+
+    /**
+     * Constructor
+     * @param alpha Slope of negative values, e.g., 0.01
+     */
+    public LeakyRelu(double alpha) {
+        super(Mode.EXACT, 0);
+
+        this.alpha = alpha;
+    }
+
+    @Override
+    public double apply(double x) {
+        return x > 0 ? x : alpha * x;
+    }
+
+    @Override
+    public double derivative(double y) {
+        return y > 0 ? 1 : alpha;
+    }
+}
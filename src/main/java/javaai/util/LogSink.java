@@ -0,0 +1,103 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * This class prints every epoch logged to {@link Metrics} as one line, the epoch number and loss
+ * formatted by a printf format, e.g., the progress of the examples on the console. It prints nothing
+ * for the periodic reports, so the lines are the same as printing each epoch as it ends, only printed
+ * off the training thread.
+ * @author Ron.Coleman
+ */
+public class LogSink implements MetricsSink {
+    /** Stream to print on */
+    protected final PrintStream out;
+
+    /** Line before the first epoch or null for none */
+    protected String header;
+
+    /** Format of the epoch number, a long, and the loss, a double */
+    protected final String format;
+
+    /**
+     * Constructor for the console.
+     * @param header Line before the first epoch or null for none
+     * @param format Format of the epoch number and the loss, e.g., "%2$s" for the loss only
+     */
+    public LogSink(String header, String format) {
+        this(System.out, header, format);
+    }
+
+    /**
+     * Constructor
+     * @param out    Stream to print on
+     * @param header Line before the first epoch or null for none
+     * @param format Format of the epoch number and the loss
+     */
+    public LogSink(PrintStream out, String header, String format) {
+        this.out = out;
+        this.header = header;
+        this.format = format;
+    }
+
+    @Override
+    public boolean isLogging() {
+        return true;
+    }
+
+    @Override
+    public void log(long epoch, double loss) {
+        printHeader();
+
+        out.println(String.format(format, epoch, loss));
+    }
+
+    @Override
+    public void report(long millis, Map<String, Double> values) {
+    }
+
+    /**
+     * Prints the header, if any, even if no epoch was logged.
+     */
+    @Override
+    public void close() {
+        printHeader();
+
+        out.flush();
+    }
+
+    /**
+     * Prints the header once.
+     */
+    protected void printHeader() {
+        if (header == null)
+            return;
+
+        out.println(header);
+
+        header = null;
+    }
+}
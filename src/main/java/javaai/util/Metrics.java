@@ -0,0 +1,327 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records training telemetry -- counters, gauges and histograms -- for any trainer, be it
+ * a bpx network, an Encog training or a metaheuristic, and reports it to a sink.
+ * <p>The usual instruments of training are fields, so a trainer records with no lookup: epochs and
+ * samples counted, loss and gradient norm as the latest value, and the nanoseconds of each epoch and
+ * of its forward, backward and update phases as histograms. Others can be added by name. Counters
+ * are LongAdders and histograms lock-free, so threads training in parallel record without contention.</p>
+ * <p>Reporting happens off the training thread: {@link #start} has a daemon thread hand a report to the
+ * sink every period, with each counter's total and its rate per second since the last report and each
+ * histogram's count, mean, median, 99th percentile and max over the period. A sink which logs every
+ * epoch, e.g., {@link LogSink}, gets the epochs queued since the last report first. Training never
+ * waits on the console or a file.</p>
+ * @author Ron.Coleman
+ */
+public class Metrics {
+    /** Standard names */
+    public final static String EPOCHS = "epochs";
+    public final static String SAMPLES = "samples";
+    public final static String LOSS = "loss";
+    public final static String GRADIENT_NORM = "gradient.norm";
+    public final static String EPOCH_NS = "epoch.ns";
+    public final static String FORWARD_NS = "forward.ns";
+    public final static String BACKWARD_NS = "backward.ns";
+    public final static String UPDATE_NS = "update.ns";
+
+    /**
+     * This class holds the latest value of a measure, e.g., the loss.
+     */
+    public static class Gauge {
+        /** Latest value */
+        protected volatile double value = Double.NaN;
+
+        /**
+         * Sets the value.
+         * @param value Value
+         */
+        public void set(double value) {
+            this.value = value;
+        }
+
+        /**
+         * Gets the value.
+         * @return Value or NaN if never set
+         */
+        public double get() {
+            return value;
+        }
+    }
+
+    /**
+     * This class holds an epoch waiting to be logged.
+     */
+    protected static class Entry {
+        /** Epoch number and loss */
+        final long epoch;
+        final double loss;
+
+        /**
+         * Constructor
+         * @param epoch Epoch number
+         * @param loss  Loss
+         */
+        Entry(long epoch, double loss) {
+            this.epoch = epoch;
+            this.loss = loss;
+        }
+    }
+
+    /** Usual instruments of training */
+    public final LongAdder epochs;
+    public final LongAdder samples;
+    public final Gauge loss;
+    public final Gauge gradientNorm;
+    public final Histogram epochTime;
+    public final Histogram forwardTime;
+    public final Histogram backwardTime;
+    public final Histogram updateTime;
+
+    /** Instruments by name in order of registration */
+    protected final Map<String, Object> instruments = new LinkedHashMap<>();
+
+    /** Counter totals at the last report by name */
+    protected final ConcurrentMap<String, Long> lasts = new ConcurrentHashMap<>();
+
+    /** Time of the start and of the last report in nanoseconds */
+    protected long started = System.nanoTime();
+    protected long reported = started;
+
+    /** Sink and the thread reporting to it or null if not started */
+    protected MetricsSink sink = null;
+    protected ScheduledExecutorService reporter = null;
+
+    /** Epochs waiting for the sink in order and true if the sink logs them */
+    protected final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    protected volatile boolean logging = false;
+
+    /**
+     * Constructor
+     */
+    public Metrics() {
+        epochs = counter(EPOCHS);
+        samples = counter(SAMPLES);
+        loss = gauge(LOSS);
+        gradientNorm = gauge(GRADIENT_NORM);
+        epochTime = histogram(EPOCH_NS);
+        forwardTime = histogram(FORWARD_NS);
+        backwardTime = histogram(BACKWARD_NS);
+        updateTime = histogram(UPDATE_NS);
+    }
+
+    /**
+     * Records the end of an epoch and, if the sink logs every epoch, logs it numbered by the epoch
+     * counter, i.e., in order for one trainer.
+     * @param samples Samples trained in the epoch
+     * @param loss    Loss at the end of the epoch
+     * @param nanos   Nanoseconds the epoch took
+     */
+    public void epoch(long samples, double loss, long nanos) {
+        this.epochs.increment();
+
+        this.samples.add(samples);
+
+        this.loss.set(loss);
+
+        this.epochTime.record(nanos);
+
+        if (logging)
+            log(epochs.sum(), loss);
+    }
+
+    /**
+     * Hands an epoch to the sink, if it logs every epoch, without recording it. The sink gets it off
+     * this thread with the next report.
+     * @param epoch Epoch number
+     * @param loss  Loss at the end of the epoch
+     */
+    public void log(long epoch, double loss) {
+        if (logging)
+            entries.add(new Entry(epoch, loss));
+    }
+
+    /**
+     * Gets or makes a counter.
+     * @param name Name
+     * @return Counter
+     */
+    public synchronized LongAdder counter(String name) {
+        return (LongAdder) instruments.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Gets or makes a gauge.
+     * @param name Name
+     * @return Gauge
+     */
+    public synchronized Gauge gauge(String name) {
+        return (Gauge) instruments.computeIfAbsent(name, key -> new Gauge());
+    }
+
+    /**
+     * Gets or makes a histogram.
+     * @param name Name
+     * @return Histogram
+     */
+    public synchronized Histogram histogram(String name) {
+        return (Histogram) instruments.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * Starts reporting to a sink periodically on a daemon thread.
+     * @param sink   Sink
+     * @param period Milliseconds between reports
+     */
+    public synchronized void start(MetricsSink sink, long period) {
+        this.sink = sink;
+
+        logging = sink.isLogging();
+
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        reporter.scheduleAtFixedRate(this::report, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reporting, makes a last report of the time since the previous one and closes the sink.
+     * If interrupted while waiting for the reporter, it still reports and closes, with the interrupt
+     * flag set.
+     * @throws IOException if the sink can't be closed
+     */
+    public void stop() throws IOException {
+        ScheduledExecutorService reporter;
+
+        synchronized (this) {
+            reporter = this.reporter;
+
+            this.reporter = null;
+        }
+
+        if (reporter == null)
+            return;
+
+        logging = false;
+
+        reporter.shutdown();
+
+        try {
+            reporter.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        report();
+
+        sink.close();
+    }
+
+    /**
+     * Logs the epochs queued, if any, and reports to the sink. Failures are ignored as the metrics must
+     * not stop the training.
+     */
+    protected synchronized void report() {
+        try {
+            for (Entry entry = entries.poll(); entry != null; entry = entries.poll())
+                sink.log(entry.epoch, entry.loss);
+
+            sink.report((System.nanoTime() - started) / 1000000, getValues());
+        }
+        catch (Exception e) {
+            if (Helper.DEBUG)
+                e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the values since the last call and starts a new period: counter totals and rates, gauge
+     * values and histogram statistics, after which the histograms are cleared. The names are the same
+     * every time; a value not known, e.g., a gauge never set, is NaN.
+     * @return Value by name in order of registration
+     */
+    public synchronized Map<String, Double> getValues() {
+        long now = System.nanoTime();
+
+        double seconds = (now - reported) / 1e9;
+
+        reported = now;
+
+        Map<String, Double> values = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Object> entry : instruments.entrySet()) {
+            String name = entry.getKey();
+
+            Object instrument = entry.getValue();
+
+            if (instrument instanceof LongAdder) {
+                long total = ((LongAdder) instrument).sum();
+
+                Long last = lasts.put(name, total);
+
+                values.put(name, (double) total);
+
+                values.put(name + "/s", seconds > 0 ? (total - (last == null ? 0 : last)) / seconds : 0);
+            }
+            else if (instrument instanceof Gauge) {
+                values.put(name, ((Gauge) instrument).get());
+            }
+            else {
+                Histogram histogram = (Histogram) instrument;
+
+                long count = histogram.getCount();
+
+                // Statistics of an empty period are NaN, e.g., a phase nobody timed
+                values.put(name + ".count", (double) count);
+                values.put(name + ".mean", count == 0 ? Double.NaN : histogram.getMean());
+                values.put(name + ".p50", count == 0 ? Double.NaN : histogram.getPercentile(50));
+                values.put(name + ".p99", count == 0 ? Double.NaN : histogram.getPercentile(99));
+                values.put(name + ".max", count == 0 ? Double.NaN : histogram.getMax());
+
+                histogram.reset();
+            }
+        }
+
+        return values;
+    }
+}
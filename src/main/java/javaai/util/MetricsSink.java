@@ -0,0 +1,66 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * This interface receives the reports of {@link Metrics}, e.g., to print or store them. Reports come
+ * from one thread at a time, never the one training.
+ * @author Ron.Coleman
+ */
+public interface MetricsSink extends AutoCloseable {
+    /**
+     * Receives a report.
+     * @param millis Milliseconds since the metrics started
+     * @param values Value by name in order of registration
+     * @throws Exception
+     */
+    void report(long millis, Map<String, Double> values) throws Exception;
+
+    /**
+     * Tests whether the sink logs every epoch besides the reports.
+     * @return True to receive each epoch with log
+     */
+    default boolean isLogging() {
+        return false;
+    }
+
+    /**
+     * Receives an epoch in the order trained, e.g., to print the progress of an example.
+     * @param epoch Epoch number
+     * @param loss  Loss at the end of the epoch
+     * @throws Exception
+     */
+    default void log(long epoch, double loss) throws Exception {
+    }
+
+    /**
+     * Releases the sink, e.g., closes its file, after the last report.
+     * @throws IOException
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+/**
+ * This class encodes the subtypes of a nominal column as activations.
+ * The codes are compiled once into a table indexed by dictionary ordinal, so encoding a value is an
+ * array access and encoding a whole column fills a flat training matrix without allocating per row.
+ * @author Ron.Coleman
+ */
+public abstract class NominalEncoder {
+    /** Code for each ordinal */
+    protected final double[][] table;
+
+    /**
+     * Constructor
+     * @param table Code for each ordinal; all codes have the same width
+     */
+    protected NominalEncoder(double[][] table) {
+        this.table = table;
+    }
+
+    /**
+     * Gets the number of subtypes.
+     * @return Number of subtypes
+     */
+    public int getCount() {
+        return table.length;
+    }
+
+    /**
+     * Gets the number of activations per code.
+     * @return Code width
+     */
+    public int getWidth() {
+        return table.length == 0 ? 0 : table[0].length;
+    }
+
+    /**
+     * Encodes an ordinal.
+     * @param ordinal Dictionary ordinal
+     * @return Code, shared by all callers so it must not be modified
+     */
+    public double[] encode(int ordinal) {
+        return table[ordinal];
+    }
+
+    /**
+     * Encodes an ordinal into a buffer.
+     * @param ordinal Dictionary ordinal or -1 if the value is missing, which encodes as zeros
+     * @param out     Buffer
+     * @param offset  Offset in the buffer
+     */
+    public void encode(int ordinal, double[] out, int offset) {
+        int width = getWidth();
+
+        if (ordinal < 0) {
+            for (int k = 0; k < width; k++)
+                out[offset + k] = 0;
+
+            return;
+        }
+
+        System.arraycopy(table[ordinal], 0, out, offset, width);
+    }
+
+    /**
+     * Encodes a column of ordinals into a flat, row-major matrix with getWidth() columns.
+     * @param ordinals Dictionary ordinals, -1 where values are missing
+     * @param out      Matrix with at least ordinals.length * getWidth() elements
+     */
+    public void encodeColumn(int[] ordinals, double[] out) {
+        int width = getWidth();
+
+        for (int row = 0; row < ordinals.length; row++)
+            encode(ordinals[row], out, row * width);
+    }
+
+    /**
+     * Decodes activations as the ordinal with the nearest code.
+     * @param activations Activations
+     * @return Dictionary ordinal
+     */
+    public int decode(double[] activations) {
+        int best = -1;
+
+        double min = Double.MAX_VALUE;
+
+        for (int ordinal = 0; ordinal < table.length; ordinal++) {
+            double[] code = table[ordinal];
+
+            double distance = 0;
+
+            for (int k = 0; k < code.length; k++) {
+                double delta = activations[k] - code[k];
+
+                distance += delta * delta;
+            }
+
+            if (distance < min) {
+                min = distance;
+                best = ordinal;
+            }
+        }
+
+        return best;
+    }
+}
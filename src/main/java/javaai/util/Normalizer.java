@@ -0,0 +1,222 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+
+/**
+ * This class normalizes numeric columns in place as they are loaded, either to a range, e.g., [-1, 1],
+ * or to z-scores, using the statistics gathered while the column was parsed.
+ * <p>A normalizer remembers the statistics of the first data set it normalizes, i.e., the training data.
+ * Saved and loaded again, it normalizes other data, e.g., inference inputs, with the same statistics
+ * without reading the training data again.</p>
+ * @author Ron.Coleman
+ */
+public class Normalizer {
+    /** Normalization modes */
+    public enum Mode { RANGE, ZSCORE }
+
+    /** Mode */
+    protected final Mode mode;
+
+    /** Normalized high for range normalization */
+    protected final double high;
+
+    /** Normalized low for range normalization */
+    protected final double low;
+
+    /** Column title -> training statistics */
+    protected final LinkedHashMap<String, ColumnStats> stats = new LinkedHashMap<>();
+
+    /**
+     * Constructor for range normalization.
+     * @param high Normalized high, e.g., 1
+     * @param low  Normalized low, e.g., -1 for TANH or 0 for sigmoid
+     */
+    public Normalizer(double high, double low) {
+        this(Mode.RANGE, high, low);
+    }
+
+    /**
+     * Constructor for z-score normalization.
+     */
+    public Normalizer() {
+        this(Mode.ZSCORE, 0, 0);
+    }
+
+    /**
+     * Constructor
+     * @param mode Mode
+     * @param high Normalized high
+     * @param low  Normalized low
+     */
+    protected Normalizer(Mode mode, double high, double low) {
+        this.mode = mode;
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Gets the training statistics of a column.
+     * @param title Column title
+     * @return Statistics or null if the column was never normalized
+     */
+    public ColumnStats getStats(String title) {
+        return stats.get(title);
+    }
+
+    /**
+     * Normalizes a value.
+     * @param title Column title
+     * @param value Value
+     * @return Normalized value
+     * @throws Exception if there are no statistics for the column
+     */
+    public double normalize(String title, double value) throws Exception {
+        return normalize(lookup(title), value);
+    }
+
+    /**
+     * Denormalizes a value, e.g., a network output.
+     * @param title Column title
+     * @param value Normalized value
+     * @return Value
+     * @throws Exception if there are no statistics for the column
+     */
+    public double denormalize(String title, double value) throws Exception {
+        ColumnStats stat = lookup(title);
+
+        if (mode == Mode.ZSCORE)
+            return value * stat.getStdev() + stat.mean;
+
+        double span = stat.max - stat.min;
+
+        return span == 0 ? stat.min : (value - low) / (high - low) * span + stat.min;
+    }
+
+    /**
+     * Normalizes a value.
+     * @param stat  Statistics
+     * @param value Value
+     * @return Normalized value
+     */
+    protected double normalize(ColumnStats stat, double value) {
+        if (mode == Mode.ZSCORE) {
+            double stdev = stat.getStdev();
+
+            return stdev == 0 ? 0 : (value - stat.mean) / stdev;
+        }
+
+        double span = stat.max - stat.min;
+
+        return span == 0 ? (high + low) / 2 : (value - stat.min) / span * (high - low) + low;
+    }
+
+    /**
+     * Gets the statistics for a column.
+     * @param title Column title
+     * @return Statistics
+     * @throws Exception if there are no statistics for the column
+     */
+    protected ColumnStats lookup(String title) throws Exception {
+        ColumnStats stat = stats.get(title);
+
+        if (stat == null)
+            throw new Exception("no statistics for column " + title);
+
+        return stat;
+    }
+
+    /**
+     * Normalizes the numeric columns in place. Columns seen for the first time keep their statistics.
+     * @param column Column buffer
+     */
+    void apply(ColumnBuffer column) {
+        if (column.type != ColumnBuffer.NUMERIC)
+            return;
+
+        ColumnStats stat = stats.get(column.title);
+
+        if (stat == null) {
+            stat = new ColumnStats(column.stats.count, column.stats.min, column.stats.max,
+                    column.stats.mean, column.stats.m2);
+
+            stats.put(column.title, stat);
+        }
+
+        double[] values = column.doubles;
+
+        for (int row = 0; row < column.size; row++)
+            values[row] = normalize(stat, values[row]);
+    }
+
+    /**
+     * Saves the normalizer as CSV: the mode and range, then the statistics of each column.
+     * @param path Path in system to file
+     * @throws Exception
+     */
+    public void save(String path) throws Exception {
+        try (PrintWriter out = new PrintWriter(path, "UTF-8")) {
+            out.println(mode + "," + high + "," + low);
+
+            for (String title : stats.keySet()) {
+                ColumnStats stat = stats.get(title);
+
+                out.println(title + "," + stat.count + "," + stat.min + "," + stat.max + "," + stat.mean + "," + stat.m2);
+            }
+        }
+    }
+
+    /**
+     * Loads a normalizer saved with save.
+     * @param path Path in system to file
+     * @return Normalizer
+     * @throws Exception
+     */
+    public static Normalizer load(String path) throws Exception {
+        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+            String[] fields = br.readLine().split(",");
+
+            Normalizer normalizer = new Normalizer(Mode.valueOf(fields[0]),
+                    Double.parseDouble(fields[1]), Double.parseDouble(fields[2]));
+
+            String line;
+
+            while ((line = br.readLine()) != null) {
+                fields = line.split(",");
+
+                if (fields.length != 6)
+                    throw new Exception("bad statistics line " + line);
+
+                normalizer.stats.put(fields[0], new ColumnStats(Long.parseLong(fields[1]),
+                        Double.parseDouble(fields[2]), Double.parseDouble(fields[3]),
+                        Double.parseDouble(fields[4]), Double.parseDouble(fields[5])));
+            }
+
+            return normalizer;
+        }
+    }
+}
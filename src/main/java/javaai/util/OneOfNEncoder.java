@@ -0,0 +1,67 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+/**
+ * This class encodes a nominal as one-of-n: one activation per subtype, high for the subtype
+ * and low for the others. For more details see Heaton (2011), d.24.
+ * @author Ron.Coleman
+ */
+public class OneOfNEncoder extends NominalEncoder {
+    /**
+     * Constructor
+     * @param count Number of subtypes
+     * @param high  Activation of the subtype, e.g., 1
+     * @param low   Activation of the other subtypes, e.g., -1 for TANH or 0 for sigmoid
+     */
+    public OneOfNEncoder(int count, double high, double low) {
+        super(compile(count, high, low));
+    }
+
+    /**
+     * Constructor for a nominal column with codes in [-1, 1].
+     * @param dataset Data set
+     * @param col     Nominal column
+     */
+    public OneOfNEncoder(Dataset dataset, int col) {
+        this(dataset.getNominalCount(col), 1, -1);
+    }
+
+    /**
+     * Compiles the code table.
+     * @param count Number of subtypes
+     * @param high  High activation
+     * @param low   Low activation
+     * @return Code for each ordinal
+     */
+    static double[][] compile(int count, double high, double low) {
+        double[][] table = new double[count][count];
+
+        for (int j = 0; j < count; j++) {
+            for (int k = 0; k < count; k++)
+                table[j][k] = k == j ? high : low;
+        }
+
+        return table;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.util.function.Function;
+import static javaai.util.Option.None;
+
+/**
+ * This class contains parsers that Helper recognizes by identity, so it can read these
+ * columns straight from the bytes of a file without making a String for every field.
+ * @author Ron.Coleman
+ */
+public class Parsers {
+    /** Parses a numeric string */
+    public final static Function<String, Object> parseNumeric = (String s) ->
+    {
+        try {
+            return Double.parseDouble(s);
+        }
+        catch(Exception e) {
+            return None;
+        }
+    };
+
+    /** Parses a "don't care" column */
+    public final static Function<String, Object> parseNone = (String s) -> None;
+
+    /** Largest mantissa a double represents exactly, i.e., 2^53 */
+    final static long MAX_EXACT = 1L << 53;
+
+    /** Powers of ten a double represents exactly */
+    final static double[] POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Parses a decimal number in a byte range, e.g., -12.5e3, without making a String.
+     * Only numbers of the form [+-]digits[.digits][(e|E)[+-]digits] whose mantissa and exponent
+     * are exact as doubles are parsed; the result is then correctly rounded, the same as
+     * Double.parseDouble.
+     * @param bytes Bytes
+     * @param from  Start index, inclusive
+     * @param to    End index, exclusive
+     * @return Value or NaN if the caller must fall back to Double.parseDouble
+     */
+    public static double parseDouble(byte[] bytes, int from, int to) {
+        int k = from;
+
+        if (k == to)
+            return Double.NaN;
+
+        boolean negative = false;
+
+        byte b = bytes[k];
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            k++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean any = false;
+
+        // Integer part
+        for (; k < to && (b = bytes[k]) >= '0' && b <= '9'; k++) {
+            any = true;
+
+            if (mantissa == 0 && b == '0')
+                continue;
+
+            if (++digits > 18)
+                return Double.NaN;
+
+            mantissa = mantissa * 10 + (b - '0');
+        }
+
+        // Fraction part
+        if (k < to && bytes[k] == '.') {
+            for (k++; k < to && (b = bytes[k]) >= '0' && b <= '9'; k++) {
+                any = true;
+
+                scale--;
+
+                if (mantissa == 0 && b == '0')
+                    continue;
+
+                if (++digits > 18)
+                    return Double.NaN;
+
+                mantissa = mantissa * 10 + (b - '0');
+            }
+        }
+
+        if (!any)
+            return Double.NaN;
+
+        // Exponent part
+        if (k < to && ((b = bytes[k]) == 'e' || b == 'E')) {
+            k++;
+
+            boolean negate = false;
+            if (k < to && ((b = bytes[k]) == '-' || b == '+')) {
+                negate = b == '-';
+                k++;
+            }
+
+            if (k == to)
+                return Double.NaN;
+
+            int exponent = 0;
+            for (; k < to && (b = bytes[k]) >= '0' && b <= '9'; k++) {
+                if (exponent > 999)
+                    return Double.NaN;
+
+                exponent = exponent * 10 + (b - '0');
+            }
+
+            scale += negate ? -exponent : exponent;
+        }
+
+        // Anything else, e.g., "1.0d", "NaN", is left to the slow path
+        if (k != to)
+            return Double.NaN;
+
+        if (mantissa > MAX_EXACT || scale < -22 || scale > 22)
+            return mantissa == 0 ? (negative ? -0.0 : 0.0) : Double.NaN;
+
+        double value = scale < 0 ? mantissa / POWERS[-scale] : mantissa * POWERS[scale];
+
+        return negative ? -value : value;
+    }
+}
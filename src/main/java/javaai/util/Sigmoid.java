@@ -0,0 +1,76 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+/**
+ * This class implements the logistic sigmoid activation, 1 / (1 + e^-x).
+ * <p>The table mode uses sigmoid(x) = (1 + tanh(x / 2)) / 2 with the {@link Tanh} table at twice the
+ * tolerance, since halving tanh halves its error. The rational mode computes 1 / (1 + e^-x) with
+ * {@link Exp}, whose relative error is at most quartered in the quotient.</p>
+ * @author Ron.Coleman
+ */
+public class Sigmoid extends Activation {
+    /** Tanh of the table mode */
+    protected Tanh tanh = null;
+
+    /** Exponential of the rational mode */
+    protected Exp exp = null;
+
+    /**
+     * Constructor for the exact mode.
+     */
+    public Sigmoid() {
+        this(Mode.EXACT, 0);
+    }
+
+    /**
+     * Constructor
+     * @param mode      Mode
+     * @param tolerance Largest absolute error of the output
+     */
+    public Sigmoid(Mode mode, double tolerance) {
+        super(mode, tolerance);
+
+        if (mode == Mode.TABLE)
+            tanh = new Tanh(mode, 2 * tolerance);
+
+        else if (mode == Mode.RATIONAL)
+            exp = new Exp(mode, tolerance);
+    }
+
+    @Override
+    public double apply(double x) {
+        if (mode == Mode.TABLE)
+            return 0.5 + 0.5 * tanh.apply(0.5 * x);
+
+        if (mode == Mode.RATIONAL)
+            return 1.0 / (1 + exp.apply(-x));
+
+        return 1.0 / (1 + Math.exp(-x));
+    }
+
+    @Override
+    public double derivative(double y) {
+        return y * (1 - y);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import javaai.util.Activation.Mode;
+
+/**
+ * This class implements the softmax activation of a vector, e^x(k) / sum of e^x(j), computed as
+ * e^(x(k) - max) so the exponents are never positive.
+ * <p>The approximate modes compute the exponentials with {@link Exp} within half the tolerance
+ * relative, so each output, a quotient of them, is within the tolerance relative and so absolute.</p>
+ * @author Ron.Coleman
+ */
+public class Softmax extends VectorActivation {
+    /** Exponential */
+    protected final Exp exp;
+
+    /**
+     * Constructor for the exact mode.
+     */
+    public Softmax() {
+        this(Mode.EXACT, 0);
+    }
+
+    /**
+     * Constructor
+     * @param mode      Mode
+     * @param tolerance Largest absolute error of the outputs
+     */
+    public Softmax(Mode mode, double tolerance) {
+        super(mode, tolerance);
+
+        exp = new Exp(mode, this.tolerance / 2);
+    }
+
+    @Override
+    public void apply(double[] in, int inOff, double[] out, int outOff, int n) {
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int k = 0; k < n; k++)
+            max = Math.max(max, in[inOff + k]);
+
+        double sum = 0;
+
+        for (int k = 0; k < n; k++) {
+            double e = exp.apply(in[inOff + k] - max);
+
+            out[outOff + k] = e;
+
+            sum += e;
+        }
+
+        double r = 1 / sum;
+
+        for (int k = 0; k < n; k++)
+            out[outOff + k] *= r;
+    }
+
+    /**
+     * Computes the diagonal of the Jacobian, y(k) (1 - y(k)); with cross-entropy error the full
+     * Jacobian cancels out to the output minus the ideal.
+     * @param y Output
+     * @return Derivative
+     */
+    @Override
+    public double derivative(double y) {
+        return y * (1 - y);
+    }
+}
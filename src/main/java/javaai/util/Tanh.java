@@ -0,0 +1,121 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+/**
+ * This class implements the hyperbolic tangent activation.
+ * <p>Both approximate modes use symmetry, tanh(-x) = -tanh(x), and saturate to +/-1 beyond the
+ * point where tanh is within half the tolerance of 1. The table interpolates tanh linearly with a step
+ * small enough that the interpolation error, at most step^2 / 8 times the largest |tanh''|, is the
+ * other half. The rational mode computes (1 - e^-2x) / (1 + e^-2x) with {@link Exp}, whose relative
+ * error at most halves in the quotient.</p>
+ * @author Ron.Coleman
+ */
+public class Tanh extends Activation {
+    /** Largest |tanh''| */
+    final static double MAX_SECOND_DERIVATIVE = 4 / (3 * Math.sqrt(3));
+
+    /** Values at or beyond which the output is +/-1 */
+    protected final double range;
+
+    /** Table of tanh at evenly spaced values from 0 to range */
+    protected double[] table = null;
+
+    /** Table entries per unit value */
+    protected double scale = 0;
+
+    /** Exponential of the rational mode */
+    protected Exp exp = null;
+
+    /**
+     * Constructor for the exact mode.
+     */
+    public Tanh() {
+        this(Mode.EXACT, 0);
+    }
+
+    /**
+     * Constructor
+     * @param mode      Mode
+     * @param tolerance Largest absolute error of the output
+     */
+    public Tanh(Mode mode, double tolerance) {
+        super(mode, tolerance);
+
+        // 1 - tanh(range) = tolerance / 2
+        double half = this.tolerance / 2;
+
+        range = mode == Mode.EXACT ? Double.POSITIVE_INFINITY : 0.5 * Math.log((2 - half) / half);
+
+        if (mode == Mode.TABLE) {
+            double step = Math.sqrt(8 * half / MAX_SECOND_DERIVATIVE);
+
+            int n = (int) Math.ceil(range / step);
+
+            scale = n / range;
+
+            // One more entry in case range * scale rounds up to n
+            table = new double[n + 2];
+
+            for (int k = 0; k < table.length; k++)
+                table[k] = Math.tanh(k / scale);
+        }
+        else if (mode == Mode.RATIONAL)
+            exp = new Exp(mode, half);
+    }
+
+    @Override
+    public double apply(double x) {
+        if (mode == Mode.EXACT)
+            return Math.tanh(x);
+
+        double a = Math.abs(x);
+
+        if (a >= range)
+            return x > 0 ? 1 : -1;
+
+        double y;
+
+        if (mode == Mode.TABLE) {
+            double u = a * scale;
+
+            int k = (int) u;
+
+            double y0 = table[k];
+
+            y = y0 + (u - k) * (table[k + 1] - y0);
+        }
+        else {
+            double e = exp.apply(-2 * a);
+
+            y = (1 - e) / (1 + e);
+        }
+
+        return x < 0 ? -y : y;
+    }
+
+    @Override
+    public double derivative(double y) {
+        return 1 - y * y;
+    }
+}
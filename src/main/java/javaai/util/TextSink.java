@@ -0,0 +1,75 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * This class prints each report of {@link Metrics} as one line of name=value pairs, leaving out the
+ * values not known, i.e., NaN.
+ * @author Ron.Coleman
+ */
+public class TextSink implements MetricsSink {
+    /** Stream to print on */
+    protected final PrintStream out;
+
+    /**
+     * Constructor for the console.
+     */
+    public TextSink() {
+        this(System.out);
+    }
+
+    /**
+     * Constructor
+     * @param out Stream to print on
+     */
+    public TextSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void report(long millis, Map<String, Double> values) {
+        StringBuilder line = new StringBuilder(String.format("%8.3fs", millis / 1000.0));
+
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            if (!entry.getValue().isNaN())
+                line.append(' ').append(entry.getKey()).append('=').append(format(entry.getValue()));
+        }
+
+        out.println(line);
+    }
+
+    /**
+     * Formats a value: whole numbers without decimals, others with four significant digits.
+     * @param value Value
+     * @return String
+     */
+    static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+
+        return String.format("%.4g", value);
+    }
+}
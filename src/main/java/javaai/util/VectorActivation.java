@@ -0,0 +1,117 @@
+/*
+ Copyright (c) Ron Coleman
+
+ Permission is hereby granted, free of charge, to any person obtaining
+ a copy of this software and associated documentation files (the
+ "Software"), to deal in the Software without restriction, including
+ without limitation the rights to use, copy, modify, merge, publish,
+ distribute, sublicense, and/or sell copies of the Software, and to
+ permit persons to whom the Software is furnished to do so, subject to
+ the following conditions:
+
+ The above copyright notice and this permission notice shall be
+ included in all copies or substantial portions of the Software.
+
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package javaai.util;
+
+import javaai.util.Activation.Mode;
+
+/**
+ * This class is the base of the activation functions only defined on a whole vector, e.g., softmax,
+ * where each output depends on every input. They have the modes and tolerance of {@link Activation}
+ * but no function of one value.
+ * @author Ron.Coleman
+ */
+public abstract class VectorActivation {
+    /** Mode */
+    protected final Mode mode;
+
+    /** Largest absolute error of the outputs */
+    protected final double tolerance;
+
+    /**
+     * Constructor
+     * @param mode      Mode
+     * @param tolerance Largest absolute error of the outputs, ignored if the mode is exact
+     */
+    protected VectorActivation(Mode mode, double tolerance) {
+        this.mode = mode;
+        this.tolerance = Activation.check(mode, tolerance);
+    }
+
+    /**
+     * Computes the function of a vector.
+     * @param in     Values
+     * @param inOff  Offset of the values
+     * @param out    Outputs, which may be the values
+     * @param outOff Offset of the outputs
+     * @param n      Length of the vector
+     */
+    public abstract void apply(double[] in, int inOff, double[] out, int outOff, int n);
+
+    /**
+     * Computes the function of a vector.
+     * @param in  Values
+     * @param out Outputs, as long as the values, which may be the values
+     */
+    public void apply(double[] in, double[] out) {
+        apply(in, 0, out, 0, in.length);
+    }
+
+    /**
+     * Computes the derivative of each output by its own input from the output.
+     * @param y Output
+     * @return Derivative
+     */
+    public abstract double derivative(double y);
+
+    /**
+     * Gets the mode.
+     * @return Mode
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the tolerance.
+     * @return Largest absolute error of the outputs, 0 if exact
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Measures the largest error against another activation, e.g., the exact one, over consecutive
+     * vectors of values.
+     * @param other Activation to compare with
+     * @param xs    Values
+     * @param width Length of each vector
+     * @return Largest absolute difference of the outputs
+     */
+    public double getError(VectorActivation other, double[] xs, int width) {
+        double[] ys = new double[width];
+        double[] zs = new double[width];
+
+        double max = 0;
+
+        for (int k = 0; k + width <= xs.length; k += width) {
+            apply(xs, k, ys, 0, width);
+
+            other.apply(xs, k, zs, 0, width);
+
+            for (int j = 0; j < width; j++)
+                max = Math.max(max, Math.abs(ys[j] - zs[j]));
+        }
+
+        return max;
+    }
+}